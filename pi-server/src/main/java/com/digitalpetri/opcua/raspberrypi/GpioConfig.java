@@ -24,6 +24,12 @@ public class GpioConfig {
 
     private List<InputConfig> inputs = Lists.newArrayList();
     private List<OutputConfig> outputs = Lists.newArrayList();
+    private long outputBatchWindow = 0;
+    private String backend = "pi4j";
+    private long inputPollInterval = 1000;
+    private String remoteHost = "localhost";
+    private int remotePort = 8888;
+    private long remoteTimeout = 1000;
 
     public List<InputConfig> getInputs() {
         return inputs;
@@ -41,11 +47,88 @@ public class GpioConfig {
         this.outputs = outputs;
     }
 
+    /**
+     * @return the time, in milliseconds, writes to outputs are collected for before being applied.
+     */
+    public long getOutputBatchWindow() {
+        return outputBatchWindow;
+    }
+
+    public void setOutputBatchWindow(long outputBatchWindow) {
+        this.outputBatchWindow = outputBatchWindow;
+    }
+
+    /**
+     * @return the GPIO backend pins are accessed through: "pi4j" or "remote".
+     */
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * @return the time, in microseconds, between polls of the input levels by the "remote" backend.
+     * <p>
+     * The "remote" backend misses edges shorter than this and sees several edges within it as at most one, so inputs
+     * that need every edge (counters, encoders and digital inputs with an edge history) are only provisioned on the
+     * "pi4j" backend.
+     */
+    public long getInputPollInterval() {
+        return inputPollInterval;
+    }
+
+    public void setInputPollInterval(long inputPollInterval) {
+        this.inputPollInterval = inputPollInterval;
+    }
+
+    /**
+     * @return the host the "remote" backend connects to.
+     */
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
+    public void setRemoteHost(String remoteHost) {
+        this.remoteHost = remoteHost;
+    }
+
+    /**
+     * @return the port the "remote" backend connects to.
+     */
+    public int getRemotePort() {
+        return remotePort;
+    }
+
+    public void setRemotePort(int remotePort) {
+        this.remotePort = remotePort;
+    }
+
+    /**
+     * @return the time, in milliseconds, the "remote" backend waits for the connection, for each write and for each
+     * response before closing the connection.
+     */
+    public long getRemoteTimeout() {
+        return remoteTimeout;
+    }
+
+    public void setRemoteTimeout(long remoteTimeout) {
+        this.remoteTimeout = remoteTimeout;
+    }
+
     @Override
     public String toString() {
         return "GpioConfig{" +
             "inputs=" + inputs +
             ", outputs=" + outputs +
+            ", outputBatchWindow=" + outputBatchWindow +
+            ", backend='" + backend + '\'' +
+            ", inputPollInterval=" + inputPollInterval +
+            ", remoteHost='" + remoteHost + '\'' +
+            ", remotePort=" + remotePort +
+            ", remoteTimeout=" + remoteTimeout +
             '}';
     }
 
@@ -54,6 +137,19 @@ public class GpioConfig {
         String name;
         String type;
         String resistance;
+        double deadbandAbsolute;
+        double deadbandPercent;
+        long debounce;
+        long coalesceWindow;
+        int edgeHistory;
+        long edgeHistoryInterval = 100;
+        long publishInterval = 1000;
+        String countEdge = "rising";
+        double pulsesPerRevolution = 1.0;
+        int pinB = -1;
+        String samplingMode = "listener";
+        long samplingInterval = 1000;
+        int averagingWindow = 1;
 
         public int getPin() {
             return pin;
@@ -87,6 +183,154 @@ public class GpioConfig {
             this.resistance = resistance;
         }
 
+        /**
+         * @return the absolute deadband, in engineering units, applied to analog inputs; 0 for none.
+         */
+        public double getDeadbandAbsolute() {
+            return deadbandAbsolute;
+        }
+
+        public void setDeadbandAbsolute(double deadbandAbsolute) {
+            this.deadbandAbsolute = deadbandAbsolute;
+        }
+
+        /**
+         * @return the percent deadband, relative to the last published value, applied to analog inputs; 0 for none.
+         */
+        public double getDeadbandPercent() {
+            return deadbandPercent;
+        }
+
+        public void setDeadbandPercent(double deadbandPercent) {
+            this.deadbandPercent = deadbandPercent;
+        }
+
+        /**
+         * @return the time, in milliseconds, a digital input must hold a new state before it's published;
+         * 0 to publish every edge.
+         */
+        public long getDebounce() {
+            return debounce;
+        }
+
+        public void setDebounce(long debounce) {
+            this.debounce = debounce;
+        }
+
+        /**
+         * @return the time, in milliseconds, edges on a digital input are collected for before the latest state
+         * is published; 0 to publish as soon as possible.
+         */
+        public long getCoalesceWindow() {
+            return coalesceWindow;
+        }
+
+        public void setCoalesceWindow(long coalesceWindow) {
+            this.coalesceWindow = coalesceWindow;
+        }
+
+        /**
+         * @return the number of recent edges a digital input keeps and exposes as array-valued child nodes;
+         * 0 for none.
+         */
+        public int getEdgeHistory() {
+            return edgeHistory;
+        }
+
+        public void setEdgeHistory(int edgeHistory) {
+            this.edgeHistory = edgeHistory;
+        }
+
+        /**
+         * @return the time, in milliseconds, new edges are collected for before the edge history nodes are
+         * updated.
+         */
+        public long getEdgeHistoryInterval() {
+            return edgeHistoryInterval;
+        }
+
+        public void setEdgeHistoryInterval(long edgeHistoryInterval) {
+            this.edgeHistoryInterval = edgeHistoryInterval;
+        }
+
+        /**
+         * @return the time, in milliseconds, between updates of a counter or encoder inputs nodes.
+         */
+        public long getPublishInterval() {
+            return publishInterval;
+        }
+
+        public void setPublishInterval(long publishInterval) {
+            this.publishInterval = publishInterval;
+        }
+
+        /**
+         * @return the edges a counter input counts: "rising", "falling" or "both".
+         */
+        public String getCountEdge() {
+            return countEdge;
+        }
+
+        public void setCountEdge(String countEdge) {
+            this.countEdge = countEdge;
+        }
+
+        /**
+         * @return the pulses a counter input sees per revolution, used to compute RPM.
+         */
+        public double getPulsesPerRevolution() {
+            return pulsesPerRevolution;
+        }
+
+        public void setPulsesPerRevolution(double pulsesPerRevolution) {
+            this.pulsesPerRevolution = pulsesPerRevolution;
+        }
+
+        /**
+         * @return the pin of an encoder inputs B channel; {@link #getPin()} is its A channel. -1 if not configured.
+         */
+        public int getPinB() {
+            return pinB;
+        }
+
+        public void setPinB(int pinB) {
+            this.pinB = pinB;
+        }
+
+        /**
+         * @return how an analog input is sampled: "listener" publishes every change the backend reports, "polled"
+         * reads the input every {@link #getSamplingInterval()}.
+         */
+        public String getSamplingMode() {
+            return samplingMode;
+        }
+
+        public void setSamplingMode(String samplingMode) {
+            this.samplingMode = samplingMode;
+        }
+
+        /**
+         * @return the time, in milliseconds, between reads of a polled analog input.
+         */
+        public long getSamplingInterval() {
+            return samplingInterval;
+        }
+
+        public void setSamplingInterval(long samplingInterval) {
+            this.samplingInterval = samplingInterval;
+        }
+
+        /**
+         * @return the number of most recent reads a polled analog input publishes the average of.
+         */
+        public int getAveragingWindow() {
+            return averagingWindow;
+        }
+
+        public void setAveragingWindow(int averagingWindow) {
+            this.averagingWindow = averagingWindow;
+        }
+
         @Override
         public String toString() {
             return "Input{" +
@@ -94,6 +338,19 @@ public class GpioConfig {
                 ", name='" + name + '\'' +
                 ", type='" + type + '\'' +
                 ", resistance='" + resistance + '\'' +
+                ", deadbandAbsolute=" + deadbandAbsolute +
+                ", deadbandPercent=" + deadbandPercent +
+                ", debounce=" + debounce +
+                ", coalesceWindow=" + coalesceWindow +
+                ", edgeHistory=" + edgeHistory +
+                ", edgeHistoryInterval=" + edgeHistoryInterval +
+                ", publishInterval=" + publishInterval +
+                ", countEdge='" + countEdge + '\'' +
+                ", pulsesPerRevolution=" + pulsesPerRevolution +
+                ", pinB=" + pinB +
+                ", samplingMode='" + samplingMode + '\'' +
+                ", samplingInterval=" + samplingInterval +
+                ", averagingWindow=" + averagingWindow +
                 '}';
         }
     }
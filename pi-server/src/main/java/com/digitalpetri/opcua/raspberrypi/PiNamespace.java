@@ -16,29 +16,44 @@
 
 package com.digitalpetri.opcua.raspberrypi;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
 
 import com.digitalpetri.opcua.raspberrypi.GpioConfig.InputConfig;
 import com.digitalpetri.opcua.raspberrypi.GpioConfig.OutputConfig;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.digitalpetri.opcua.raspberrypi.gpio.OutputWriter;
 import com.digitalpetri.opcua.raspberrypi.nodes.AnalogInputNode;
 import com.digitalpetri.opcua.raspberrypi.nodes.AnalogOutputNode;
+import com.digitalpetri.opcua.raspberrypi.nodes.CounterInputNode;
 import com.digitalpetri.opcua.raspberrypi.nodes.DigitalInputNode;
 import com.digitalpetri.opcua.raspberrypi.nodes.DigitalOutputNode;
+import com.digitalpetri.opcua.raspberrypi.nodes.EncoderInputNode;
+import com.digitalpetri.opcua.raspberrypi.nodes.OutputNode;
+import com.digitalpetri.opcua.raspberrypi.nodes.SetOutputsMethod;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
 import org.eclipse.milo.opcua.sdk.server.api.AccessContext;
 import org.eclipse.milo.opcua.sdk.server.api.DataItem;
+import org.eclipse.milo.opcua.sdk.server.api.MethodInvocationHandler;
 import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
 import org.eclipse.milo.opcua.sdk.server.api.Namespace;
 import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaMethodNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler;
 import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.UaException;
@@ -47,6 +62,7 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
@@ -55,6 +71,7 @@ import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static org.eclipse.milo.opcua.sdk.core.util.StreamUtil.opt2stream;
 
@@ -62,12 +79,29 @@ public class PiNamespace implements Namespace {
 
     public static final String NAMESPACE_URI = "urn:digitalpetri:pi-server:pi-namespace";
 
+    /**
+     * Shared, immutable results for the common cases; returned as-is instead of allocating per item.
+     */
+    private static final DataValue NODE_ID_UNKNOWN_VALUE = new DataValue(StatusCodes.Bad_NodeIdUnknown);
+    private static final StatusCode NODE_ID_UNKNOWN_STATUS = new StatusCode(StatusCodes.Bad_NodeIdUnknown);
+    private static final DataValue NO_COMMUNICATION_VALUE = new DataValue(StatusCodes.Bad_NoCommunication);
+
+    private static final UInteger VALUE_ATTRIBUTE_ID = AttributeId.Value.uid();
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    /**
+     * Index of the nodes belonging to this namespace, populated as they are added.
+     */
+    private final Map<NodeId, UaNode> nodes = Maps.newConcurrentMap();
+
+    private final Map<Integer, OutputNode> outputNodes = Maps.newConcurrentMap();
+
     private final UaNodeManager nodeManager;
 
     private final UaObjectNode gpioFolder;
     private final SubscriptionModel subscriptionModel;
+    private final OutputWriter outputWriter;
 
     private final PiServer server;
     private final UShort namespaceIndex;
@@ -78,6 +112,8 @@ public class PiNamespace implements Namespace {
 
         nodeManager = server.getServer().getNodeManager();
 
+        outputWriter = new OutputWriter(server.getGpioConfig().getOutputBatchWindow(), server.getGpioBackend());
+
         gpioFolder = UaObjectNode.builder(server.getServer())
             .setNodeId(new NodeId(namespaceIndex, "GPIO"))
             .setBrowseName(new QualifiedName(namespaceIndex, "GPIO"))
@@ -85,7 +121,7 @@ public class PiNamespace implements Namespace {
             .setTypeDefinition(Identifiers.FolderType)
             .build();
 
-        nodeManager.addNode(gpioFolder);
+        addNode(gpioFolder);
 
         nodeManager.addReference(new Reference(
             Identifiers.ObjectsFolder,
@@ -96,6 +132,7 @@ public class PiNamespace implements Namespace {
         ));
 
         addGpioNodes();
+        addSetOutputsMethod();
 
         subscriptionModel = new SubscriptionModel(server.getServer(), this);
     }
@@ -111,18 +148,25 @@ public class PiNamespace implements Namespace {
 
             UaVariableNode node;
 
-            if ("digital".equalsIgnoreCase(outputType)) {
-                node = DigitalOutputNode.fromOutput(this, output);
-            } else if ("analog".equalsIgnoreCase(outputType)) {
-                node = AnalogOutputNode.fromOutput(this, output);
-            } else {
-                logger.warn("Unknown output type: {}. Expected \"digital\" or \"analog\".", outputType);
+            try {
+                if ("digital".equalsIgnoreCase(outputType)) {
+                    node = DigitalOutputNode.fromOutput(this, output);
+                } else if ("analog".equalsIgnoreCase(outputType)) {
+                    node = AnalogOutputNode.fromOutput(this, output);
+                } else {
+                    logger.warn("Unknown output type: {}. Expected \"digital\" or \"analog\".", outputType);
+                    node = null;
+                }
+            } catch (Exception e) {
+                logger.error("Error provisioning {} output \"{}\" on pin {}; skipping it.",
+                    outputType, output.getName(), output.getPin(), e);
                 node = null;
             }
 
             return opt2stream(Optional.ofNullable(node));
         }).forEach(n -> {
-            nodeManager.addNode(n);
+            addNode(n);
+            outputNodes.put(((OutputNode) n).getPin(), (OutputNode) n);
 
             gpioFolder.addReference(new Reference(
                 gpioFolder.getNodeId(),
@@ -143,18 +187,38 @@ public class PiNamespace implements Namespace {
 
             UaVariableNode node;
 
-            if ("digital".equalsIgnoreCase(inputType)) {
-                node = DigitalInputNode.fromInput(this, input);
-            } else if ("analog".equalsIgnoreCase(inputType)) {
-                node = AnalogInputNode.fromInput(this, input);
-            } else {
-                logger.warn("Unknown input type: {}. Expected \"digital\" or \"analog\".", inputType);
+            try {
+                if (needsEveryEdge(input) && !server.getGpioBackend().reportsEveryEdge()) {
+                    logger.error("Not provisioning {} input \"{}\" on pin {}: the \"{}\" backend polls input levels " +
+                            "and would miss edges. Use the \"pi4j\" backend.",
+                        inputType, input.getName(), input.getPin(), server.getGpioConfig().getBackend());
+                    node = null;
+                } else if ("encoder".equalsIgnoreCase(inputType) && isPinBShared(input)) {
+                    logger.error("Not provisioning encoder input \"{}\": its pinB {} is also used by another input " +
+                        "or output.", input.getName(), input.getPinB());
+                    node = null;
+                } else if ("digital".equalsIgnoreCase(inputType)) {
+                    node = DigitalInputNode.fromInput(this, input);
+                } else if ("analog".equalsIgnoreCase(inputType)) {
+                    node = AnalogInputNode.fromInput(this, input);
+                } else if ("counter".equalsIgnoreCase(inputType)) {
+                    node = CounterInputNode.fromInput(this, input);
+                } else if ("encoder".equalsIgnoreCase(inputType)) {
+                    node = EncoderInputNode.fromInput(this, input);
+                } else {
+                    logger.warn("Unknown input type: {}. Expected \"digital\", \"analog\", \"counter\" or " +
+                        "\"encoder\".", inputType);
+                    node = null;
+                }
+            } catch (Exception e) {
+                logger.error("Error provisioning {} input \"{}\" on pin {}; skipping it.",
+                    inputType, input.getName(), input.getPin(), e);
                 node = null;
             }
 
             return opt2stream(Optional.ofNullable(node));
         }).forEach(n -> {
-            nodeManager.addNode(n);
+            addNode(n);
 
             gpioFolder.addReference(new Reference(
                 gpioFolder.getNodeId(),
@@ -166,6 +230,73 @@ public class PiNamespace implements Namespace {
         });
     }
 
+    /**
+     * @return {@code true} if {@code input} counts or records every edge, which a polling backend can't provide.
+     */
+    private static boolean needsEveryEdge(InputConfig input) {
+        String inputType = input.getType();
+
+        return "counter".equalsIgnoreCase(inputType) ||
+            "encoder".equalsIgnoreCase(inputType) ||
+            ("digital".equalsIgnoreCase(inputType) && input.getEdgeHistory() > 0);
+    }
+
+    /**
+     * @return {@code true} if the B channel pin of {@code encoder} is configured as any other input or output pin.
+     */
+    private boolean isPinBShared(InputConfig encoder) {
+        int pinB = encoder.getPinB();
+
+        if (pinB < 0) {
+            return false;
+        }
+
+        return server.getGpioConfig().getOutputs().stream().anyMatch(output -> output.getPin() == pinB) ||
+            server.getGpioConfig().getInputs().stream().filter(input -> input != encoder).anyMatch(input ->
+                input.getPin() == pinB || ("encoder".equalsIgnoreCase(input.getType()) && input.getPinB() == pinB));
+    }
+
+    private void addSetOutputsMethod() {
+        UaMethodNode methodNode = UaMethodNode.builder(server.getServer())
+            .setNodeId(new NodeId(namespaceIndex, "GPIO/SetOutputs"))
+            .setBrowseName(new QualifiedName(namespaceIndex, "SetOutputs"))
+            .setDisplayName(LocalizedText.english("SetOutputs"))
+            .setDescription(LocalizedText.english("Set several outputs at once, applied together as one batch."))
+            .build();
+
+        try {
+            AnnotationBasedInvocationHandler invocationHandler =
+                AnnotationBasedInvocationHandler.fromAnnotatedObject(
+                    nodeManager, new SetOutputsMethod(outputNodes, outputWriter));
+
+            methodNode.setProperty(UaMethodNode.InputArguments, invocationHandler.getInputArguments());
+            methodNode.setProperty(UaMethodNode.OutputArguments, invocationHandler.getOutputArguments());
+            methodNode.setInvocationHandler(invocationHandler);
+
+            addNode(methodNode);
+
+            gpioFolder.addReference(new Reference(
+                gpioFolder.getNodeId(),
+                Identifiers.HasComponent,
+                methodNode.getNodeId().expanded(),
+                methodNode.getNodeClass(),
+                true
+            ));
+        } catch (Exception e) {
+            logger.error("Error creating SetOutputs method.", e);
+        }
+    }
+
+    /**
+     * Add {@code node} to the {@link UaNodeManager} and to this namespace's node index.
+     *
+     * @param node the {@link UaNode} to add.
+     */
+    public void addNode(UaNode node) {
+        nodeManager.addNode(node);
+        nodes.put(node.getNodeId(), node);
+    }
+
     @Override
     public UShort getNamespaceIndex() {
         return namespaceIndex;
@@ -184,6 +315,21 @@ public class PiNamespace implements Namespace {
         return server.getServer().getNodeManager();
     }
 
+    public OutputWriter getOutputWriter() {
+        return outputWriter;
+    }
+
+    public GpioBackend getGpioBackend() {
+        return server.getGpioBackend();
+    }
+
+    /**
+     * @return the executor input nodes dispatch updates on, off the GPIO backend's event thread.
+     */
+    public ScheduledExecutorService getScheduledExecutor() {
+        return server.getServer().getScheduledExecutorService();
+    }
+
     @Override
     public CompletableFuture<List<Reference>> browse(AccessContext accessContext, NodeId nodeId) {
         List<Reference> references = nodeManager.getNode(nodeId)
@@ -200,26 +346,40 @@ public class PiNamespace implements Namespace {
                      TimestampsToReturn timestamps,
                      List<ReadValueId> readValueIds) {
 
-        List<DataValue> results = newArrayListWithCapacity(readValueIds.size());
-
-        for (ReadValueId readValueId : readValueIds) {
-            NodeId nodeId = readValueId.getNodeId();
-            UInteger attributeId = readValueId.getAttributeId();
-            String indexRange = readValueId.getIndexRange();
-
-            DataValue value = nodeManager.getNode(nodeId)
-                .map(n ->
-                    n.readAttribute(
-                        new AttributeContext(context),
-                        attributeId,
-                        timestamps,
-                        indexRange,
-                        QualifiedName.NULL_VALUE
-                    )
-                )
-                .orElse(new DataValue(new StatusCode(StatusCodes.Bad_NodeIdUnknown)));
-
-            results.add(value);
+        // A maxAge of 0 means the value must be read from the device; a missing one is treated the same way.
+        double age = maxAge != null ? maxAge : 0d;
+
+        int size = readValueIds.size();
+        List<DataValue> results = newArrayListWithCapacity(size);
+        AttributeContext attributeContext = new AttributeContext(context);
+
+        for (int i = 0; i < size; i++) {
+            ReadValueId readValueId = readValueIds.get(i);
+            UaNode node = node(readValueId.getNodeId());
+
+            if (node != null) {
+                if (node instanceof OutputNode && VALUE_ATTRIBUTE_ID.equals(readValueId.getAttributeId())) {
+                    try {
+                        ((OutputNode) node).refresh(age);
+                    } catch (RuntimeException e) {
+                        // e.g. a remote backend's daemon is unreachable; the pin's level is unknown.
+                        logger.debug("Error reading back {}: {}", readValueId.getNodeId(), e.getMessage());
+
+                        results.add(NO_COMMUNICATION_VALUE);
+                        continue;
+                    }
+                }
+
+                results.add(node.readAttribute(
+                    attributeContext,
+                    readValueId.getAttributeId(),
+                    timestamps,
+                    readValueId.getIndexRange(),
+                    QualifiedName.NULL_VALUE
+                ));
+            } else {
+                results.add(NODE_ID_UNKNOWN_VALUE);
+            }
         }
 
         context.complete(results);
@@ -227,28 +387,80 @@ public class PiNamespace implements Namespace {
 
     @Override
     public void write(WriteContext context, List<WriteValue> writeValues) {
-        List<StatusCode> results = newArrayListWithCapacity(writeValues.size());
+        int size = writeValues.size();
+        StatusCode[] results = new StatusCode[size];
+        AttributeContext attributeContext = new AttributeContext(context);
+
+        List<CompletableFuture<Void>> pending = null;
 
-        for (WriteValue writeValue : writeValues) {
-            NodeId nodeId = writeValue.getNodeId();
-            UInteger attributeId = writeValue.getAttributeId();
-            DataValue value = writeValue.getValue();
-            String indexRange = writeValue.getIndexRange();
+        for (int i = 0; i < size; i++) {
+            WriteValue writeValue = writeValues.get(i);
+            UaNode node = node(writeValue.getNodeId());
+
+            if (node == null) {
+                results[i] = NODE_ID_UNKNOWN_STATUS;
+            } else if (node instanceof OutputNode && VALUE_ATTRIBUTE_ID.equals(writeValue.getAttributeId())) {
+                /*
+                 * Output values are handed off to the OutputWriter; the result is filled in once the value has
+                 * been applied to the pin.
+                 */
+                OutputNode outputNode = (OutputNode) node;
 
-            StatusCode result = nodeManager.getNode(nodeId).map(n -> {
                 try {
-                    n.writeAttribute(new AttributeContext(context), attributeId, value, indexRange);
+                    if (writeValue.getIndexRange() != null && !writeValue.getIndexRange().isEmpty()) {
+                        throw new UaException(StatusCodes.Bad_IndexRangeInvalid);
+                    }
+
+                    Variant value = outputNode.convert(writeValue.getValue());
+
+                    final int index = i;
+
+                    CompletableFuture<Void> future = outputWriter.write(outputNode, value)
+                        .handle((v, ex) -> {
+                            results[index] = ex == null ? StatusCode.GOOD : statusCode(ex);
+                            return null;
+                        });
 
-                    return StatusCode.GOOD;
+                    if (pending == null) {
+                        pending = newArrayList();
+                    }
+                    pending.add(future);
                 } catch (UaException e) {
-                    return e.getStatusCode();
+                    results[i] = e.getStatusCode();
                 }
-            }).orElse(new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+            } else {
+                try {
+                    node.writeAttribute(
+                        attributeContext,
+                        writeValue.getAttributeId(),
+                        writeValue.getValue(),
+                        writeValue.getIndexRange()
+                    );
+
+                    results[i] = StatusCode.GOOD;
+                } catch (UaException e) {
+                    results[i] = e.getStatusCode();
+                }
+            }
+        }
 
-            results.add(result);
+        if (pending == null) {
+            context.complete(Arrays.asList(results));
+        } else {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[pending.size()]))
+                .thenRun(() -> context.complete(Arrays.asList(results)));
         }
+    }
 
-        context.complete(results);
+    @Override
+    public Optional<MethodInvocationHandler> getInvocationHandler(NodeId methodId) {
+        UaNode node = node(methodId);
+
+        if (node instanceof UaMethodNode) {
+            return ((UaMethodNode) node).getInvocationHandler();
+        } else {
+            return Optional.empty();
+        }
     }
 
     @Override
@@ -271,4 +483,27 @@ public class PiNamespace implements Namespace {
         subscriptionModel.onMonitoringModeChanged(monitoredItems);
     }
 
+    private static StatusCode statusCode(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+
+        return cause instanceof UaException ?
+            ((UaException) cause).getStatusCode() :
+            new StatusCode(StatusCodes.Bad_UnexpectedError);
+    }
+
+    /**
+     * Resolve {@code nodeId} from the node index, falling back to the {@link UaNodeManager} for nodes that were added
+     * to it directly (e.g. property nodes created by the SDK).
+     * <p>
+     * Unlike {@link UaNodeManager#getNode(NodeId)} this does not allocate an {@link Optional}.
+     *
+     * @param nodeId the {@link NodeId} to resolve.
+     * @return the {@link UaNode} identified by {@code nodeId}, or {@code null} if it doesn't exist.
+     */
+    private UaNode node(NodeId nodeId) {
+        UaNode node = nodes.get(nodeId);
+
+        return node != null ? node : nodeManager.get(nodeId);
+    }
+
 }
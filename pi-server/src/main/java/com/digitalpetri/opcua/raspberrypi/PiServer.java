@@ -33,6 +33,9 @@ import java.util.concurrent.CompletableFuture;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.joran.JoranConfigurator;
 import ch.qos.logback.core.util.StatusPrinter;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.digitalpetri.opcua.raspberrypi.gpio.Pi4jBackend;
+import com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend;
 import com.digitalpetri.opcua.raspberrypi.plugins.PluginContext;
 import com.digitalpetri.opcua.raspberrypi.plugins.PluginHook;
 import com.digitalpetri.opcua.raspberrypi.util.KeyStoreLoader;
@@ -73,11 +76,13 @@ public class PiServer {
 
     private final OpcUaServer server;
     private final GpioConfig gpioConfig;
+    private final GpioBackend gpioBackend;
 
     public PiServer() throws Exception {
         configureLogback();
 
         gpioConfig = readGpioConfig();
+        gpioBackend = createGpioBackend(gpioConfig);
 
         File securityDir = new File("../pi-server-data/security");
         if (!securityDir.exists() && !securityDir.mkdirs()) {
@@ -149,11 +154,35 @@ public class PiServer {
         return gpioConfig;
     }
 
+    public GpioBackend getGpioBackend() {
+        return gpioBackend;
+    }
+
+    private static GpioBackend createGpioBackend(GpioConfig gpioConfig) throws Exception {
+        String backend = gpioConfig.getBackend() != null ? gpioConfig.getBackend() : Pi4jBackend.BACKEND;
+
+        switch (backend) {
+            case Pi4jBackend.BACKEND:
+                return new Pi4jBackend();
+
+            case RemoteBackend.BACKEND:
+                return new RemoteBackend(
+                    gpioConfig.getRemoteHost(),
+                    gpioConfig.getRemotePort(),
+                    gpioConfig.getInputPollInterval(),
+                    gpioConfig.getRemoteTimeout()
+                );
+        }
+
+        throw new Exception("unknown GPIO backend: " + backend);
+    }
+
     private CompletableFuture<Void> shutdownFuture() {
         CompletableFuture<Void> future = new CompletableFuture<>();
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             server.shutdown();
+            gpioBackend.shutdown();
             future.complete(null);
         }));
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+/**
+ * Maps the wiringPi pin numbers used in {@code gpio-config.json} to the BCM GPIO numbers the registers, and pigpio,
+ * are laid out by.
+ */
+final class BcmPins {
+
+    /**
+     * The number of BCM GPIOs, across both banks.
+     */
+    static final int COUNT = 54;
+
+    /**
+     * BCM GPIO number indexed by wiringPi pin number.
+     */
+    private static final int[] WIRINGPI_TO_BCM = {
+        17, 18, 27, 22, 23, 24, 25, 4,
+        2, 3, 8, 7, 10, 9, 11, 14,
+        15, 28, 29, 30, 31, 5, 6, 13,
+        19, 26, 12, 16, 20, 21, 0, 1
+    };
+
+    private BcmPins() {}
+
+    /**
+     * @param pin a wiringPi pin number.
+     * @return the BCM GPIO number of {@code pin}.
+     */
+    static int bcm(int pin) {
+        if (pin < 0 || pin >= WIRINGPI_TO_BCM.length) {
+            throw new IllegalArgumentException("no BCM GPIO for wiringPi pin " + pin);
+        }
+
+        return WIRINGPI_TO_BCM[pin];
+    }
+
+}
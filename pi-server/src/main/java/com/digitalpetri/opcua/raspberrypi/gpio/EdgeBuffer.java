@@ -0,0 +1,180 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free ring buffer of the most recent edges on one input pin.
+ * <p>
+ * Every edge claims the next sequence number and writes its timestamp and state, packed into one long, into an
+ * atomic array, so recording an edge never blocks. When the buffer is full the oldest edges are overwritten;
+ * {@link #getCount()} lets readers tell how many edges they missed.
+ * <p>
+ * Timestamps are nanoseconds since the epoch, derived from {@link System#nanoTime()} against a wall-clock base that's
+ * re-taken every {@link #REANCHOR_INTERVAL_NANOS}, so they follow NTP adjustments over long uptimes.
+ */
+public class EdgeBuffer {
+
+    private static final long REANCHOR_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private volatile Anchor anchor = new Anchor();
+
+    private final AtomicLong next = new AtomicLong(0);
+
+    /**
+     * The sequence number of the edge each slot holds, set after the slot's edge has been written.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Each slot's timestamp shifted left one bit, with the state in the low bit.
+     */
+    private final AtomicLongArray edges;
+
+    private final int mask;
+
+    /**
+     * @param capacity the number of edges kept; rounded up to a power of two.
+     */
+    public EdgeBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+
+        sequences = new AtomicLongArray(size);
+        edges = new AtomicLongArray(size);
+        mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, -1L);
+        }
+    }
+
+    /**
+     * Record an edge.
+     *
+     * @param high     the state of the line after the edge.
+     * @param nanoTime the {@link System#nanoTime()} the edge was seen at.
+     */
+    public void add(boolean high, long nanoTime) {
+        Anchor a = anchor;
+
+        if (nanoTime - a.nanoTime > REANCHOR_INTERVAL_NANOS) {
+            anchor = a = new Anchor();
+        }
+
+        long timestamp = a.epochNanos + (nanoTime - a.nanoTime);
+
+        long sequence = next.getAndIncrement();
+        int slot = (int) (sequence & mask);
+
+        // invalidate the slot while it's being rewritten
+        sequences.set(slot, -1L);
+        edges.set(slot, (timestamp << 1) | (high ? 1L : 0L));
+        sequences.set(slot, sequence);
+    }
+
+    /**
+     * @return the total number of edges recorded.
+     */
+    public long getCount() {
+        return next.get();
+    }
+
+    /**
+     * @return the edges currently held, oldest first. Edges being written, or overwritten, while the snapshot is
+     * taken are left out.
+     */
+    public Snapshot snapshot() {
+        long end = next.get();
+        long start = Math.max(0, end - (mask + 1));
+
+        long[] t = new long[(int) (end - start)];
+        boolean[] s = new boolean[t.length];
+        int n = 0;
+
+        for (long sequence = start; sequence < end; sequence++) {
+            int slot = (int) (sequence & mask);
+
+            if (sequences.get(slot) != sequence) {
+                continue;
+            }
+
+            long edge = edges.get(slot);
+
+            if (sequences.get(slot) == sequence) {
+                t[n] = edge >> 1;
+                s[n] = (edge & 1L) != 0;
+                n++;
+            }
+        }
+
+        return new Snapshot(end, n, t, s);
+    }
+
+    private static class Anchor {
+
+        final long epochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        final long nanoTime = System.nanoTime();
+
+    }
+
+    public static class Snapshot {
+
+        private final long count;
+        private final int size;
+        private final long[] timestamps;
+        private final boolean[] states;
+
+        private Snapshot(long count, int size, long[] timestamps, boolean[] states) {
+            this.count = count;
+            this.size = size;
+            this.timestamps = timestamps;
+            this.states = states;
+        }
+
+        /**
+         * @return the total number of edges recorded when the snapshot was taken.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param i the index of the edge, 0 being the oldest.
+         * @return the time of the edge, in nanoseconds since the epoch.
+         */
+        public long getTimestamp(int i) {
+            return timestamps[i];
+        }
+
+        /**
+         * @param i the index of the edge, 0 being the oldest.
+         * @return the state of the line after the edge.
+         */
+        public boolean getState(int i) {
+            return states[i];
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands edges off from the GPIO backend's event thread to a scheduled executor, debouncing and coalescing them on
+ * the way.
+ * <p>
+ * {@link #edge(boolean)} is lock-free and never blocks: it records the latest state in a single slot and, if no
+ * dispatch is pending, schedules one. Edges arriving before that dispatch runs overwrite the slot, so the handoff is
+ * bounded no matter how fast the line toggles. The dispatch publishes the latest state once the line has been quiet
+ * for the debounce time and the coalesce window has passed, and only if it differs from the last state published.
+ */
+public class EdgeDispatcher {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AtomicBoolean latest = new AtomicBoolean();
+    private final AtomicBoolean dispatchPending = new AtomicBoolean(false);
+
+    private volatile long lastEdgeNanos;
+
+    /**
+     * Guarded by {@code this}; only dispatches, never the event thread, take the lock.
+     */
+    private boolean published;
+
+    private final long debounceNanos;
+    private final long delayNanos;
+
+    private final ScheduledExecutorService executor;
+    private final Consumer<Boolean> consumer;
+
+    /**
+     * @param initial        the state already published.
+     * @param debounce       the time, in milliseconds, the line must be quiet before a state is published.
+     * @param coalesceWindow the time, in milliseconds, edges are collected for before the latest is published.
+     * @param executor       the executor dispatches run on.
+     * @param consumer       receives the published states.
+     */
+    public EdgeDispatcher(boolean initial,
+                          long debounce,
+                          long coalesceWindow,
+                          ScheduledExecutorService executor,
+                          Consumer<Boolean> consumer) {
+
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounce));
+        this.delayNanos = Math.max(debounceNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(0, coalesceWindow)));
+        this.executor = executor;
+        this.consumer = consumer;
+
+        latest.set(initial);
+        published = initial;
+    }
+
+    /**
+     * Record an edge. Called on the GPIO backend's event thread.
+     *
+     * @param state the state of the line after the edge.
+     */
+    public void edge(boolean state) {
+        latest.set(state);
+        lastEdgeNanos = System.nanoTime();
+
+        if (dispatchPending.compareAndSet(false, true)) {
+            schedule(delayNanos);
+        }
+    }
+
+    private void schedule(long delay) {
+        if (delay > 0) {
+            executor.schedule(this::dispatch, delay, TimeUnit.NANOSECONDS);
+        } else {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    private synchronized void dispatch() {
+        long quiet = System.nanoTime() - lastEdgeNanos;
+
+        if (quiet < debounceNanos) {
+            // still bouncing; wait until the line has been quiet long enough
+            schedule(debounceNanos - quiet);
+            return;
+        }
+
+        // clear before reading the slot so an edge arriving now schedules another dispatch
+        dispatchPending.set(false);
+
+        boolean state = latest.get();
+
+        if (state != published) {
+            published = state;
+
+            try {
+                consumer.accept(state);
+            } catch (Throwable t) {
+                logger.error("Error publishing input state.", t);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Access to the Pi's GPIO pins.
+ * <p>
+ * Pins are addressed by their wiringPi number, the numbering {@code gpio-config.json} has always used. Listeners
+ * may be called on a backend-owned thread and must not block.
+ */
+public interface GpioBackend {
+
+    enum Pull {
+        UP,
+        DOWN
+    }
+
+    DigitalInput digitalInput(int pin, String name, Pull pull);
+
+    DigitalOutput digitalOutput(int pin, String name, boolean high);
+
+    AnalogInput analogInput(int pin, String name);
+
+    AnalogOutput analogOutput(int pin, String name, double value);
+
+    /**
+     * Run {@code writes}, letting the backend hold back the output changes it makes until it returns so they can
+     * be applied together. The default applies every change as it's made.
+     *
+     * @param writes the writes to run; called on the current thread.
+     */
+    default void batch(Runnable writes) {
+        writes.run();
+    }
+
+    /**
+     * @return {@code true} if {@link DigitalInput} listeners are called for every edge, however short. A backend that
+     * polls input levels returns {@code false}: it misses an edge shorter than its poll interval and sees several
+     * edges within one interval as at most one.
+     */
+    default boolean reportsEveryEdge() {
+        return false;
+    }
+
+    void shutdown();
+
+    interface DigitalInput {
+
+        boolean isHigh();
+
+        /**
+         * @param listener called with the new state every time the input changes.
+         */
+        void addListener(Consumer<Boolean> listener);
+
+    }
+
+    interface DigitalOutput {
+
+        boolean isHigh();
+
+        void setHigh(boolean high);
+
+    }
+
+    interface AnalogInput {
+
+        double getValue();
+
+        /**
+         * @param listener called with the new value every time the input changes.
+         */
+        void addListener(DoubleConsumer listener);
+
+    }
+
+    interface AnalogOutput {
+
+        double getValue();
+
+        void setValue(double value);
+
+    }
+
+}
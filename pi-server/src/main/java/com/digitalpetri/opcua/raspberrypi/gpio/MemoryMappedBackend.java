@@ -0,0 +1,311 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link GpioBackend} that maps the BCM2835 GPIO register block into memory and accesses it directly, a whole
+ * bank of 32 pins per 32-bit read or write.
+ * <p>
+ * Output changes made inside {@link #batch(Runnable)} are collected into one GPSET and one GPCLR write per bank.
+ * The block has no interrupts, so inputs are polled: a single thread reads every bank's level register each poll
+ * interval and notifies the listeners of the pins that changed.
+ * <p>
+ * The block is mapped through {@link FileChannel}, which can only map a file at least {@link #BLOCK_SIZE} bytes long:
+ * it extends shorter files to the size of the mapping, and a character device such as {@code /dev/gpiomem} reports a
+ * size of 0 and can't be extended. Until the device is mapped natively and tried on a Pi, {@code PiServer} doesn't
+ * offer this backend; it runs against a file standing in for the block. The Pi's GPIO has no analog pins.
+ */
+public class MemoryMappedBackend implements GpioBackend {
+
+    public static final String BACKEND = "mmap";
+
+    /**
+     * Register offsets, in bytes, from the start of the GPIO block.
+     */
+    static final int GPFSEL0 = 0x00;
+    static final int GPSET0 = 0x1C;
+    static final int GPCLR0 = 0x28;
+    static final int GPLEV0 = 0x34;
+    static final int GPPUD = 0x94;
+    static final int GPPUDCLK0 = 0x98;
+
+    /**
+     * The size of the mapping; {@code /dev/gpiomem} exposes one page.
+     */
+    public static final int BLOCK_SIZE = 4096;
+
+    private static final int BANKS = 2;
+
+    private static final int FUNCTION_INPUT = 0;
+    private static final int FUNCTION_OUTPUT = 1;
+
+    private static final int PUD_DOWN = 1;
+    private static final int PUD_UP = 2;
+
+    /**
+     * How long the pull-up/down control lines need to settle; the datasheet asks for 150 cycles.
+     */
+    private static final long PUD_SETTLE_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final MappedByteBuffer registers;
+
+    /**
+     * Guards the read-modify-write sequences on the function select and pull-up/down registers.
+     */
+    private final Object configLock = new Object();
+
+    /**
+     * Set and clear masks, per bank, of the batch running on the current thread; null outside a batch.
+     */
+    private final ThreadLocal<int[]> batch = new ThreadLocal<>();
+
+    private final Map<Integer, List<Consumer<Boolean>>> listeners = Maps.newConcurrentMap();
+    private final AtomicIntegerArray watched = new AtomicIntegerArray(BANKS);
+
+    /**
+     * Levels read by the last poll. Only touched by the polling task once polling has started.
+     */
+    private final int[] lastLevels = new int[BANKS];
+    private boolean polling = false;
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("pi-server-gpio-poller")
+            .setDaemon(true)
+            .build()
+    );
+
+    private final long pollInterval;
+
+    /**
+     * @param path         the file to map the register block from.
+     * @param pollInterval the time, in microseconds, between polls of the input levels.
+     * @throws IOException if {@code path} is shorter than {@link #BLOCK_SIZE} bytes or can't be mapped.
+     */
+    public MemoryMappedBackend(Path path, long pollInterval) throws IOException {
+        this.pollInterval = Math.max(1, pollInterval);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < BLOCK_SIZE) {
+                // FileChannel.map() would try to extend it, which fails on a device and silently grows anything else.
+                throw new IOException(String.format(
+                    "%s is %d bytes long, shorter than the %d byte register block", path, channel.size(), BLOCK_SIZE));
+            }
+
+            registers = channel.map(FileChannel.MapMode.READ_WRITE, 0, BLOCK_SIZE);
+        }
+
+        registers.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public DigitalInput digitalInput(int pin, String name, Pull pull) {
+        int bcm = BcmPins.bcm(pin);
+
+        synchronized (configLock) {
+            setFunction(bcm, FUNCTION_INPUT);
+            setPull(bcm, pull);
+        }
+
+        return new DigitalInput() {
+            @Override
+            public boolean isHigh() {
+                return level(bcm);
+            }
+
+            @Override
+            public void addListener(Consumer<Boolean> listener) {
+                watch(bcm, listener);
+            }
+        };
+    }
+
+    @Override
+    public DigitalOutput digitalOutput(int pin, String name, boolean high) {
+        int bcm = BcmPins.bcm(pin);
+
+        synchronized (configLock) {
+            // Latch the initial level before the pin starts driving it.
+            write(bcm, high);
+            setFunction(bcm, FUNCTION_OUTPUT);
+        }
+
+        return new DigitalOutput() {
+            @Override
+            public boolean isHigh() {
+                return level(bcm);
+            }
+
+            @Override
+            public void setHigh(boolean high) {
+                write(bcm, high);
+            }
+        };
+    }
+
+    @Override
+    public AnalogInput analogInput(int pin, String name) {
+        throw new UnsupportedOperationException("the " + BACKEND + " backend has no analog pins: " + name);
+    }
+
+    @Override
+    public AnalogOutput analogOutput(int pin, String name, double value) {
+        throw new UnsupportedOperationException("the " + BACKEND + " backend has no analog pins: " + name);
+    }
+
+    @Override
+    public void batch(Runnable writes) {
+        if (batch.get() != null) {
+            writes.run();
+            return;
+        }
+
+        int[] masks = new int[BANKS * 2];
+        batch.set(masks);
+
+        try {
+            writes.run();
+        } finally {
+            batch.remove();
+
+            for (int bank = 0; bank < BANKS; bank++) {
+                if (masks[bank] != 0) {
+                    registers.putInt(GPSET0 + 4 * bank, masks[bank]);
+                }
+                if (masks[BANKS + bank] != 0) {
+                    registers.putInt(GPCLR0 + 4 * bank, masks[BANKS + bank]);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    private void write(int bcm, boolean high) {
+        int bank = bcm >>> 5;
+        int bit = 1 << (bcm & 31);
+
+        int[] masks = batch.get();
+
+        if (masks != null) {
+            if (high) {
+                masks[bank] |= bit;
+                masks[BANKS + bank] &= ~bit;
+            } else {
+                masks[BANKS + bank] |= bit;
+                masks[bank] &= ~bit;
+            }
+        } else {
+            registers.putInt((high ? GPSET0 : GPCLR0) + 4 * bank, bit);
+        }
+    }
+
+    private boolean level(int bcm) {
+        return (registers.getInt(GPLEV0 + 4 * (bcm >>> 5)) & (1 << (bcm & 31))) != 0;
+    }
+
+    private void setFunction(int bcm, int function) {
+        int offset = GPFSEL0 + 4 * (bcm / 10);
+        int shift = (bcm % 10) * 3;
+
+        int fsel = registers.getInt(offset);
+        registers.putInt(offset, (fsel & ~(7 << shift)) | (function << shift));
+    }
+
+    private void setPull(int bcm, Pull pull) {
+        int clock = GPPUDCLK0 + 4 * (bcm >>> 5);
+
+        registers.putInt(GPPUD, pull == Pull.DOWN ? PUD_DOWN : PUD_UP);
+        LockSupport.parkNanos(PUD_SETTLE_NANOS);
+        registers.putInt(clock, 1 << (bcm & 31));
+        LockSupport.parkNanos(PUD_SETTLE_NANOS);
+        registers.putInt(GPPUD, 0);
+        registers.putInt(clock, 0);
+    }
+
+    private void watch(int bcm, Consumer<Boolean> listener) {
+        listeners.computeIfAbsent(bcm, k -> new CopyOnWriteArrayList<>()).add(listener);
+
+        int bank = bcm >>> 5;
+        int bit = 1 << (bcm & 31);
+        watched.accumulateAndGet(bank, bit, (a, b) -> a | b);
+
+        startPolling();
+    }
+
+    private synchronized void startPolling() {
+        if (!polling) {
+            polling = true;
+
+            for (int bank = 0; bank < BANKS; bank++) {
+                lastLevels[bank] = registers.getInt(GPLEV0 + 4 * bank);
+            }
+
+            poller.scheduleAtFixedRate(this::poll, pollInterval, pollInterval, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void poll() {
+        try {
+            for (int bank = 0; bank < BANKS; bank++) {
+                int level = registers.getInt(GPLEV0 + 4 * bank);
+                int changed = (level ^ lastLevels[bank]) & watched.get(bank);
+                lastLevels[bank] = level;
+
+                while (changed != 0) {
+                    int bit = Integer.lowestOneBit(changed);
+                    changed &= ~bit;
+
+                    int bcm = (bank << 5) + Integer.numberOfTrailingZeros(bit);
+                    boolean high = (level & bit) != 0;
+
+                    listeners.get(bcm).forEach(listener -> listener.accept(high));
+                }
+            }
+        } catch (Throwable t) {
+            // An exception escaping would cancel the polling task.
+            logger.error("Error polling GPIO levels.", t);
+        }
+    }
+
+}
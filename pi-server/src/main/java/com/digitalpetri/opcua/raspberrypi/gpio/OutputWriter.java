@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.digitalpetri.opcua.raspberrypi.nodes.OutputNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single-writer pipeline that applies values to output pins.
+ * <p>
+ * Writes are queued per pin and applied by one dedicated thread. Writes to the same pin that arrive within the same
+ * batch window are coalesced, last write wins; every write's future completes once the value that superseded it has
+ * been applied to the hardware. Each batch is applied inside {@link GpioBackend#batch(Runnable)}, so a backend that
+ * can apply several pins at once does.
+ */
+public class OutputWriter {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("pi-server-output-writer")
+            .setDaemon(true)
+            .build()
+    );
+
+    private final Object lock = new Object();
+
+    /**
+     * Writes waiting to be applied, in the order their pins were first written. Guarded by {@link #lock}.
+     */
+    private Map<OutputNode, PendingOutput> pending = Maps.newLinkedHashMap();
+    private boolean drainScheduled = false;
+
+    private final long batchWindow;
+    private final GpioBackend backend;
+
+    /**
+     * @param batchWindow the time, in milliseconds, writes are collected for before being applied.
+     * @param backend     the {@link GpioBackend} the output pins belong to.
+     */
+    public OutputWriter(long batchWindow, GpioBackend backend) {
+        this.batchWindow = Math.max(0, batchWindow);
+        this.backend = backend;
+    }
+
+    /**
+     * Queue {@code value} to be applied to {@code node}'s pin.
+     *
+     * @param node  the {@link OutputNode} to write to.
+     * @param value the value to write.
+     * @return a future that completes once the value, or a later value that superseded it, has been applied.
+     */
+    public CompletableFuture<Void> write(OutputNode node, Variant value) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        synchronized (lock) {
+            enqueue(node, value, future);
+            scheduleDrain();
+        }
+
+        return future;
+    }
+
+    /**
+     * Queue all of {@code values} to be applied together, in a single pass of the writer thread.
+     *
+     * @param values the values to write, keyed by the {@link OutputNode} to write them to.
+     * @return a future that completes once every value has been applied.
+     */
+    public CompletableFuture<Void> write(Map<OutputNode, Variant> values) {
+        List<CompletableFuture<Void>> futures = Lists.newArrayListWithCapacity(values.size());
+
+        synchronized (lock) {
+            values.forEach((node, value) -> {
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                enqueue(node, value, future);
+                futures.add(future);
+            });
+
+            scheduleDrain();
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void enqueue(OutputNode node, Variant value, CompletableFuture<Void> future) {
+        PendingOutput p = pending.get(node);
+
+        if (p == null) {
+            p = new PendingOutput();
+            pending.put(node, p);
+        }
+
+        p.value = value;
+        p.futures.add(future);
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+
+            if (batchWindow > 0) {
+                executor.schedule(this::drain, batchWindow, TimeUnit.MILLISECONDS);
+            } else {
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    private void drain() {
+        Map<OutputNode, PendingOutput> batch;
+
+        synchronized (lock) {
+            batch = pending;
+            pending = Maps.newLinkedHashMap();
+            drainScheduled = false;
+        }
+
+        List<PendingOutput> applied = Lists.newArrayListWithCapacity(batch.size());
+
+        try {
+            backend.batch(() -> batch.forEach((node, p) -> {
+                try {
+                    node.apply(p.value);
+
+                    applied.add(p);
+                } catch (Throwable t) {
+                    logger.error("Error applying value to pin {}.", node.getPin(), t);
+
+                    p.futures.forEach(f -> f.completeExceptionally(t));
+                }
+            }));
+
+            applied.forEach(p -> p.futures.forEach(f -> f.complete(null)));
+        } catch (Throwable t) {
+            logger.error("Error applying batch of {} outputs.", batch.size(), t);
+
+            // Futures already failed individually keep their own cause.
+            batch.values().forEach(p -> p.futures.forEach(f -> f.completeExceptionally(t)));
+        }
+    }
+
+    private static class PendingOutput {
+        Variant value;
+        final List<CompletableFuture<Void>> futures = Lists.newArrayListWithCapacity(1);
+    }
+
+}
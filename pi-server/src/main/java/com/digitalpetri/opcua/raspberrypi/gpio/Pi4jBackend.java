@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+import com.pi4j.io.gpio.GpioController;
+import com.pi4j.io.gpio.GpioFactory;
+import com.pi4j.io.gpio.GpioPinAnalogInput;
+import com.pi4j.io.gpio.GpioPinAnalogOutput;
+import com.pi4j.io.gpio.GpioPinDigitalInput;
+import com.pi4j.io.gpio.GpioPinDigitalOutput;
+import com.pi4j.io.gpio.PinPullResistance;
+import com.pi4j.io.gpio.PinState;
+import com.pi4j.io.gpio.RaspiPin;
+import com.pi4j.io.gpio.event.GpioPinListenerAnalog;
+import com.pi4j.io.gpio.event.GpioPinListenerDigital;
+
+/**
+ * A {@link GpioBackend} on pi4j's {@link GpioController}; every pin access is a native call, and inputs are
+ * interrupt driven.
+ */
+public class Pi4jBackend implements GpioBackend {
+
+    public static final String BACKEND = "pi4j";
+
+    private final GpioController controller = GpioFactory.getInstance();
+
+    @Override
+    public DigitalInput digitalInput(int pin, String name, Pull pull) {
+        GpioPinDigitalInput input = controller.provisionDigitalInputPin(
+            RaspiPin.getPinByAddress(pin),
+            name,
+            pull == Pull.DOWN ? PinPullResistance.PULL_DOWN : PinPullResistance.PULL_UP
+        );
+
+        return new DigitalInput() {
+            @Override
+            public boolean isHigh() {
+                return input.isHigh();
+            }
+
+            @Override
+            public void addListener(Consumer<Boolean> listener) {
+                input.addListener((GpioPinListenerDigital) event -> listener.accept(event.getState().isHigh()));
+            }
+        };
+    }
+
+    @Override
+    public DigitalOutput digitalOutput(int pin, String name, boolean high) {
+        GpioPinDigitalOutput output = controller.provisionDigitalOutputPin(
+            RaspiPin.getPinByAddress(pin),
+            name,
+            high ? PinState.HIGH : PinState.LOW
+        );
+
+        return new DigitalOutput() {
+            @Override
+            public boolean isHigh() {
+                return output.isHigh();
+            }
+
+            @Override
+            public void setHigh(boolean high) {
+                output.setState(high);
+            }
+        };
+    }
+
+    @Override
+    public AnalogInput analogInput(int pin, String name) {
+        GpioPinAnalogInput input = controller.provisionAnalogInputPin(RaspiPin.getPinByAddress(pin), name);
+
+        return new AnalogInput() {
+            @Override
+            public double getValue() {
+                return input.getValue();
+            }
+
+            @Override
+            public void addListener(DoubleConsumer listener) {
+                input.addListener((GpioPinListenerAnalog) event -> listener.accept(event.getValue()));
+            }
+        };
+    }
+
+    @Override
+    public AnalogOutput analogOutput(int pin, String name, double value) {
+        GpioPinAnalogOutput output = controller.provisionAnalogOutputPin(RaspiPin.getPinByAddress(pin), name, value);
+
+        return new AnalogOutput() {
+            @Override
+            public double getValue() {
+                return output.getValue();
+            }
+
+            @Override
+            public void setValue(double value) {
+                output.setValue(value);
+            }
+        };
+    }
+
+    /**
+     * Input changes come from pi4j's interrupt listeners rather than polling.
+     */
+    @Override
+    public boolean reportsEveryEdge() {
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        controller.shutdown();
+    }
+
+}
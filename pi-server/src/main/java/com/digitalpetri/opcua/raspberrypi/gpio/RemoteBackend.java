@@ -0,0 +1,743 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link GpioBackend} driving the pins of another Pi through a pigpio daemon, or anything speaking its socket
+ * protocol.
+ * <p>
+ * Every command is 16 bytes, four little-endian 32-bit words {@code cmd, p1, p2, p3}, and is answered by 16 bytes
+ * ending in the result. Commands are queued to a single writer thread, which pipelines them over one connection:
+ * they're written without waiting for earlier responses, which are matched to their requests in FIFO order by a
+ * reader thread. Output changes made inside {@link #batch(Runnable)} are collected into one set and one clear command
+ * per bank and queued together with any PWM changes, so a whole batch costs a single round trip.
+ * <p>
+ * Only the writer thread connects and writes, so a slow or unreachable daemon never blocks the threads using the
+ * pins for longer than the timeout. A command that isn't answered within the timeout, or a write that doesn't
+ * complete within it, closes the connection. The next command reconnects, waiting longer after each failed attempt;
+ * commands queued while it waits fail right away. Pins are configured on every new connection, so pins can be
+ * provisioned before the daemon is reachable and survive its restart.
+ * <p>
+ * Inputs are polled, one read per bank each poll interval, and read from the latest poll once there is one.
+ * Analog outputs are PWM duty cycles from 0 to 255; there are no analog inputs.
+ */
+public class RemoteBackend implements GpioBackend {
+
+    public static final String BACKEND = "remote";
+
+    public static final int DEFAULT_PORT = 8888;
+
+    /**
+     * Command codes.
+     */
+    static final int MODES = 0;
+    static final int MODEG = 1;
+    static final int PUD = 2;
+    static final int READ = 3;
+    static final int WRITE = 4;
+    static final int PWM = 5;
+    static final int BR1 = 10;
+    static final int BR2 = 11;
+    static final int BC1 = 12;
+    static final int BC2 = 13;
+    static final int BS1 = 14;
+    static final int BS2 = 15;
+    static final int GDC = 83;
+
+    static final int MODE_INPUT = 0;
+    static final int MODE_OUTPUT = 1;
+
+    static final int PUD_OFF = 0;
+    static final int PUD_DOWN = 1;
+    static final int PUD_UP = 2;
+
+    static final int COMMAND_SIZE = 16;
+
+    static final int MAX_DUTY_CYCLE = 255;
+
+    /**
+     * Bounds, in milliseconds, of the wait between failed connection attempts; it doubles after each one.
+     */
+    static final long MIN_RECONNECT_DELAY = 100;
+    static final long MAX_RECONNECT_DELAY = 30_000;
+
+    private static final int BANKS = 2;
+
+    private static final int[] BANK_READ = {BR1, BR2};
+    private static final int[] BANK_SET = {BS1, BS2};
+    private static final int[] BANK_CLEAR = {BC1, BC2};
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Set by the writer thread once connected; cleared by whichever thread closes it.
+     */
+    private final AtomicReference<Connection> connection = new AtomicReference<>();
+
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+
+    private final Thread writer;
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * The configuration of every provisioned pin, applied again on each new connection. Outputs keep the last level
+     * and duty cycle written to them.
+     */
+    private final Map<Integer, Pull> inputs = Maps.newConcurrentMap();
+    private final Map<Integer, Boolean> outputs = Maps.newConcurrentMap();
+    private final Map<Integer, Integer> dutyCycles = Maps.newConcurrentMap();
+
+    /**
+     * The batch running on the current thread; null outside a batch.
+     */
+    private final ThreadLocal<Batch> batch = new ThreadLocal<>();
+
+    private final Map<Integer, List<Consumer<Boolean>>> listeners = Maps.newConcurrentMap();
+    private final AtomicIntegerArray watched = new AtomicIntegerArray(BANKS);
+
+    private final AtomicBoolean polling = new AtomicBoolean(false);
+
+    /**
+     * Whether the last poll failed, so a lost connection is logged once rather than every poll. Only touched by
+     * the polling task.
+     */
+    private boolean pollFailing = false;
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("pi-server-remote-gpio-poller")
+            .setDaemon(true)
+            .build()
+    );
+
+    private final String host;
+    private final int port;
+    private final long pollInterval;
+    private final long timeout;
+
+    /**
+     * @param host         the host the daemon runs on.
+     * @param port         the port the daemon listens on.
+     * @param pollInterval the time, in microseconds, between polls of the input levels.
+     * @param timeout      the time, in milliseconds, to wait for the connection, for each write and for each
+     *                     response.
+     */
+    public RemoteBackend(String host, int port, long pollInterval, long timeout) {
+        this.host = host;
+        this.port = port;
+        this.pollInterval = Math.max(1, pollInterval);
+        this.timeout = Math.max(1, timeout);
+
+        writer = new Thread(this::write, "pi-server-remote-gpio-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        poller.scheduleWithFixedDelay(this::checkWrite, this.timeout, this.timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public DigitalInput digitalInput(int pin, String name, Pull pull) {
+        int bcm = BcmPins.bcm(pin);
+
+        inputs.put(bcm, pull);
+        configureInput(bcm, pull, this::queue);
+
+        return new DigitalInput() {
+            @Override
+            public boolean isHigh() {
+                Connection c = connection.get();
+                int[] levels = c != null ? c.levels : null;
+
+                if (levels != null) {
+                    return (levels[bcm >>> 5] & (1 << (bcm & 31))) != 0;
+                } else {
+                    return await(send(READ, bcm, 0)) != 0;
+                }
+            }
+
+            @Override
+            public void addListener(Consumer<Boolean> listener) {
+                watch(bcm, listener);
+            }
+        };
+    }
+
+    @Override
+    public DigitalOutput digitalOutput(int pin, String name, boolean high) {
+        int bcm = BcmPins.bcm(pin);
+
+        outputs.put(bcm, high);
+        configureOutput(bcm, high, this::queue);
+
+        return new DigitalOutput() {
+            @Override
+            public boolean isHigh() {
+                return await(send(READ, bcm, 0)) != 0;
+            }
+
+            @Override
+            public void setHigh(boolean high) {
+                outputs.put(bcm, high);
+
+                Batch b = batch.get();
+
+                if (b != null) {
+                    b.write(bcm, high);
+                } else {
+                    await(send(WRITE, bcm, high ? 1 : 0));
+                }
+            }
+        };
+    }
+
+    @Override
+    public AnalogInput analogInput(int pin, String name) {
+        throw new UnsupportedOperationException("the " + BACKEND + " backend has no analog inputs: " + name);
+    }
+
+    @Override
+    public AnalogOutput analogOutput(int pin, String name, double value) {
+        int bcm = BcmPins.bcm(pin);
+
+        dutyCycles.put(bcm, dutyCycle(value));
+        configure(PWM, bcm, dutyCycle(value), this::queue);
+
+        return new AnalogOutput() {
+            @Override
+            public double getValue() {
+                return await(send(GDC, bcm, 0));
+            }
+
+            @Override
+            public void setValue(double value) {
+                dutyCycles.put(bcm, dutyCycle(value));
+
+                Batch b = batch.get();
+
+                if (b != null) {
+                    b.futures.add(send(PWM, bcm, dutyCycle(value)));
+                } else {
+                    await(send(PWM, bcm, dutyCycle(value)));
+                }
+            }
+        };
+    }
+
+    @Override
+    public void batch(Runnable writes) {
+        if (batch.get() != null) {
+            writes.run();
+            return;
+        }
+
+        Batch b = new Batch();
+        batch.set(b);
+
+        try {
+            writes.run();
+        } finally {
+            batch.remove();
+
+            for (int bank = 0; bank < BANKS; bank++) {
+                if (b.masks[bank] != 0) {
+                    b.futures.add(send(BANK_SET[bank], b.masks[bank], 0));
+                }
+                if (b.masks[BANKS + bank] != 0) {
+                    b.futures.add(send(BANK_CLEAR[bank], b.masks[BANKS + bank], 0));
+                }
+            }
+        }
+
+        b.futures.forEach(this::await);
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+
+        poller.shutdownNow();
+        writer.interrupt();
+
+        IOException cause = new IOException("backend shut down");
+
+        Connection c = connection.get();
+        if (c != null) {
+            c.close(cause);
+        }
+
+        Request request;
+        while ((request = requests.poll()) != null) {
+            request.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Queue a command for the writer thread.
+     *
+     * @return a future completing with the command's result.
+     */
+    private Request send(int cmd, int p1, int p2) {
+        Request request = new Request(cmd, p1, p2);
+
+        queue(request);
+
+        return request;
+    }
+
+    private void queue(Request request) {
+        if (shutdown) {
+            request.completeExceptionally(new IOException("backend shut down"));
+        } else {
+            requests.add(request);
+        }
+    }
+
+    /**
+     * Submit a command configuring a pin. Nothing waits for it; a failure is logged and the pin configured again on
+     * the next connection.
+     *
+     * @param submit queues the command, or writes it to a new connection.
+     */
+    private void configure(int cmd, int p1, int p2, Consumer<Request> submit) {
+        Request request = new Request(cmd, p1, p2);
+
+        request.whenComplete((r, ex) -> {
+            if (ex != null) {
+                logger.debug("Error configuring GPIO {} on {}:{}: {}", p1, host, port, ex.getMessage());
+            }
+        });
+
+        submit.accept(request);
+    }
+
+    private void configureInput(int bcm, Pull pull, Consumer<Request> submit) {
+        configure(MODES, bcm, MODE_INPUT, submit);
+        configure(PUD, bcm, pull == Pull.DOWN ? PUD_DOWN : PUD_UP, submit);
+    }
+
+    private void configureOutput(int bcm, boolean high, Consumer<Request> submit) {
+        // Latch the level before the pin starts driving it.
+        configure(WRITE, bcm, high ? 1 : 0, submit);
+        configure(MODES, bcm, MODE_OUTPUT, submit);
+    }
+
+    /**
+     * The writer thread: connect when needed and write every queued command, flushing once the queue is empty.
+     */
+    private void write() {
+        long reconnectDelay = MIN_RECONNECT_DELAY;
+        long nextAttempt = System.nanoTime();
+
+        try {
+            while (true) {
+                Request request = requests.take();
+
+                while (request != null) {
+                    Connection c = connection.get();
+
+                    if (c == null && System.nanoTime() - nextAttempt >= 0) {
+                        try {
+                            c = connect();
+
+                            reconnectDelay = MIN_RECONNECT_DELAY;
+                        } catch (IOException e) {
+                            if (reconnectDelay == MIN_RECONNECT_DELAY) {
+                                logger.warn("Error connecting to {}:{}: {}", host, port, e.getMessage());
+                            } else {
+                                logger.debug("Error connecting to {}:{}; next attempt in {}ms: {}",
+                                    host, port, reconnectDelay, e.getMessage());
+                            }
+
+                            nextAttempt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reconnectDelay);
+                            reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+                        }
+                    }
+
+                    if (c != null) {
+                        c.write(request);
+                    } else {
+                        request.completeExceptionally(new IOException("not connected to " + host + ":" + port));
+                    }
+
+                    request = requests.poll();
+
+                    if (request == null && c != null) {
+                        c.flush();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // shut down
+        } catch (Throwable t) {
+            logger.error("Remote GPIO writer failed.", t);
+        }
+    }
+
+    /**
+     * Connect and configure every provisioned pin ahead of any queued command. Only called by the writer thread.
+     */
+    private Connection connect() throws IOException {
+        Connection c = new Connection();
+
+        connection.set(c);
+
+        if (shutdown) {
+            c.close(new IOException("backend shut down"));
+        }
+
+        inputs.forEach((bcm, pull) -> configureInput(bcm, pull, c::write));
+        outputs.forEach((bcm, high) -> configureOutput(bcm, high, c::write));
+        dutyCycles.forEach((bcm, dutyCycle) -> configure(PWM, bcm, dutyCycle, c::write));
+
+        return c;
+    }
+
+    /**
+     * Close the connection if a write to it has been blocked for longer than the timeout, e.g. because the daemon
+     * stopped reading. Runs on the polling thread.
+     */
+    private void checkWrite() {
+        Connection c = connection.get();
+
+        if (c != null) {
+            long started = c.writeStarted;
+
+            if (started != 0 && System.nanoTime() - started > TimeUnit.MILLISECONDS.toNanos(timeout)) {
+                c.close(new IOException("write to " + host + ":" + port + " timed out"));
+            }
+        }
+    }
+
+    private int await(CompletableFuture<Integer> future) {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            throw cause instanceof IOException ?
+                new UncheckedIOException((IOException) cause) :
+                new UncheckedIOException(new IOException(cause));
+        } catch (TimeoutException e) {
+            IOException cause = new IOException("no response from " + host + ":" + port, e);
+
+            future.completeExceptionally(cause);
+
+            // The response may still come, so the connection can't be trusted to match responses to requests.
+            Connection c = future instanceof Request ? ((Request) future).connection : null;
+            if (c == null) {
+                c = connection.get();
+            }
+            if (c != null) {
+                c.close(cause);
+            }
+
+            throw new UncheckedIOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new UncheckedIOException(new InterruptedIOException());
+        }
+    }
+
+    private void watch(int bcm, Consumer<Boolean> listener) {
+        listeners.computeIfAbsent(bcm, k -> new CopyOnWriteArrayList<>()).add(listener);
+
+        int bank = bcm >>> 5;
+        int bit = 1 << (bcm & 31);
+        watched.accumulateAndGet(bank, bit, (a, b) -> a | b);
+
+        startPolling();
+    }
+
+    private void startPolling() {
+        if (polling.compareAndSet(false, true)) {
+            poller.scheduleAtFixedRate(this::poll, 0, pollInterval, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void poll() {
+        try {
+            List<Request> reads = Lists.newArrayListWithCapacity(BANKS);
+
+            for (int bank = 0; bank < BANKS; bank++) {
+                reads.add(send(BANK_READ[bank], 0, 0));
+            }
+
+            int[] current = new int[BANKS];
+            for (int bank = 0; bank < BANKS; bank++) {
+                current[bank] = await(reads.get(bank));
+            }
+
+            Connection c = reads.get(BANKS - 1).connection;
+            int[] last = c.levels;
+            c.levels = current;
+
+            if (pollFailing) {
+                pollFailing = false;
+
+                logger.info("Polling GPIO levels from {}:{} again.", host, port);
+            }
+
+            for (int bank = 0; bank < BANKS; bank++) {
+                // The first poll on a connection reports every watched pin, since any of them may have changed.
+                int changed = (last != null ? current[bank] ^ last[bank] : -1) & watched.get(bank);
+
+                while (changed != 0) {
+                    int bit = Integer.lowestOneBit(changed);
+                    changed &= ~bit;
+
+                    int bcm = (bank << 5) + Integer.numberOfTrailingZeros(bit);
+                    boolean high = (current[bank] & bit) != 0;
+
+                    listeners.get(bcm).forEach(listener -> listener.accept(high));
+                }
+            }
+        } catch (Throwable t) {
+            // An exception escaping would cancel the polling task.
+            if (!pollFailing && !shutdown) {
+                pollFailing = true;
+
+                logger.error("Error polling GPIO levels from {}:{}.", host, port, t);
+            }
+        }
+    }
+
+    private static int dutyCycle(double value) {
+        return (int) Math.max(0, Math.min(MAX_DUTY_CYCLE, Math.round(value)));
+    }
+
+    /**
+     * A queued command and the future completing with its result.
+     */
+    private static final class Request extends CompletableFuture<Integer> {
+
+        final int cmd;
+        final int p1;
+        final int p2;
+
+        /**
+         * The connection the command was written to; null until it's written.
+         */
+        volatile Connection connection;
+
+        Request(int cmd, int p1, int p2) {
+            this.cmd = cmd;
+            this.p1 = p1;
+            this.p2 = p2;
+        }
+
+    }
+
+    private static final class Batch {
+
+        /**
+         * Set and clear masks, per bank.
+         */
+        final int[] masks = new int[BANKS * 2];
+
+        final List<CompletableFuture<Integer>> futures = Lists.newArrayList();
+
+        void write(int bcm, boolean high) {
+            int bank = bcm >>> 5;
+            int bit = 1 << (bcm & 31);
+
+            if (high) {
+                masks[bank] |= bit;
+                masks[BANKS + bank] &= ~bit;
+            } else {
+                masks[BANKS + bank] |= bit;
+                masks[bank] &= ~bit;
+            }
+        }
+
+    }
+
+    private final class Connection {
+
+        final Socket socket = new Socket();
+        final OutputStream output;
+
+        /**
+         * Only used by the writer thread.
+         */
+        final ByteBuffer command = ByteBuffer.allocate(COMMAND_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Requests written and not yet answered, in the order they were written.
+         */
+        final Queue<Request> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Levels read by the last poll over this connection; null until the first one. Only written by the polling
+         * task.
+         */
+        volatile int[] levels;
+
+        /**
+         * When the write in progress started, by {@link System#nanoTime()}; 0 while not writing.
+         */
+        volatile long writeStarted = 0;
+
+        Connection() throws IOException {
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(host, port), (int) timeout);
+
+                // Connecting to a free local port can connect the socket to itself, which echoes every command.
+                if (socket.getLocalSocketAddress().equals(socket.getRemoteSocketAddress())) {
+                    throw new IOException("connected to itself; nothing listening on " + host + ":" + port);
+                }
+
+                output = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+
+            Thread reader = new Thread(this::read, "pi-server-remote-gpio-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * Write {@code request}, unless it has already timed out. Only called by the writer thread.
+         */
+        void write(Request request) {
+            if (request.isDone()) {
+                return;
+            }
+
+            command.clear();
+            command.putInt(request.cmd).putInt(request.p1).putInt(request.p2).putInt(0);
+
+            request.connection = this;
+            pending.add(request);
+
+            writeStarted = System.nanoTime();
+            try {
+                output.write(command.array());
+            } catch (IOException e) {
+                close(e);
+            } finally {
+                writeStarted = 0;
+            }
+        }
+
+        /**
+         * Only called by the writer thread.
+         */
+        void flush() {
+            writeStarted = System.nanoTime();
+            try {
+                output.flush();
+            } catch (IOException e) {
+                close(e);
+            } finally {
+                writeStarted = 0;
+            }
+        }
+
+        private void read() {
+            byte[] response = new byte[COMMAND_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(response).order(ByteOrder.LITTLE_ENDIAN);
+
+            try {
+                DataInputStream input = new DataInputStream(socket.getInputStream());
+
+                while (true) {
+                    input.readFully(response);
+
+                    int cmd = buffer.getInt(0);
+                    int result = buffer.getInt(12);
+
+                    Request request = pending.poll();
+
+                    if (request == null || request.cmd != cmd) {
+                        throw new IOException("unexpected response to command " + cmd);
+                    }
+
+                    // Bank reads return all 32 levels; only other commands use negative results for errors.
+                    if (result < 0 && cmd != BR1 && cmd != BR2) {
+                        request.completeExceptionally(new IOException("command " + cmd + " failed: " + result));
+                    } else {
+                        request.complete(result);
+                    }
+                }
+            } catch (IOException e) {
+                close(e);
+            }
+        }
+
+        /**
+         * Close the connection and fail every request waiting on it. Safe to call from any thread, any number of
+         * times.
+         */
+        void close(IOException cause) {
+            if (connection.compareAndSet(this, null)) {
+                logger.warn("Connection to {}:{} closed: {}", host, port, cause.getMessage());
+            }
+
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already failing every pending request below.
+            }
+
+            Request request;
+            while ((request = pending.poll()) != null) {
+                request.completeExceptionally(cause);
+            }
+        }
+
+    }
+
+}
@@ -16,13 +16,13 @@
 
 package com.digitalpetri.opcua.raspberrypi.nodes;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import com.digitalpetri.opcua.raspberrypi.GpioConfig.InputConfig;
 import com.digitalpetri.opcua.raspberrypi.PiNamespace;
-import com.pi4j.io.gpio.GpioController;
-import com.pi4j.io.gpio.GpioFactory;
-import com.pi4j.io.gpio.GpioPinAnalogInput;
-import com.pi4j.io.gpio.RaspiPin;
-import com.pi4j.io.gpio.event.GpioPinListenerAnalog;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.digitalpetri.opcua.raspberrypi.util.Deadband;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
@@ -33,35 +33,75 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 
+/**
+ * An analog input, sampled either by a backend listener on every change it reports or by polling at a fixed rate.
+ * <p>
+ * Polling caps the rate a jittery channel is published at; each poll publishes the average of the last
+ * {@code averagingWindow} reads. Either way values pass through the input's {@link Deadband}.
+ */
 public class AnalogInputNode extends UaVariableNode {
 
-    private final GpioController controller = GpioFactory.getInstance();
+    private final GpioBackend.AnalogInput input;
+    private final Deadband deadband;
 
-    private final GpioPinAnalogInput input;
+    /**
+     * The last {@code averagingWindow} polled reads. Only touched by the polling task.
+     */
+    private double[] window;
+    private int windowNext = 0;
+    private int windowCount = 0;
 
     public AnalogInputNode(UaNodeContext context,
                            NodeId nodeId,
                            QualifiedName browseName,
                            LocalizedText displayName,
-                           InputConfig inputConfig) {
+                           InputConfig inputConfig,
+                           ScheduledExecutorService executor,
+                           GpioBackend backend) {
 
         super(context, nodeId, browseName, displayName);
 
-        input = controller.provisionAnalogInputPin(
-            RaspiPin.getPinByAddress(inputConfig.getPin()),
-            inputConfig.getName()
-        );
-
-        input.addListener((GpioPinListenerAnalog) event -> {
-            double value = event.getValue();
+        deadband = new Deadband(inputConfig.getDeadbandAbsolute(), inputConfig.getDeadbandPercent());
 
-            setValue(new DataValue(new Variant(value)));
-        });
+        input = backend.analogInput(inputConfig.getPin(), inputConfig.getName());
 
         double value = input.getValue();
+        deadband.exceeded(value);
 
         setDataType(Identifiers.Double);
         setValue(new DataValue(new Variant(value)));
+
+        if ("polled".equalsIgnoreCase(inputConfig.getSamplingMode())) {
+            window = new double[Math.max(1, inputConfig.getAveragingWindow())];
+
+            long interval = Math.max(1, inputConfig.getSamplingInterval());
+
+            executor.scheduleAtFixedRate(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            input.addListener(this::publish);
+        }
+    }
+
+    private void poll() {
+        window[windowNext] = input.getValue();
+        windowNext = (windowNext + 1) % window.length;
+
+        if (windowCount < window.length) {
+            windowCount++;
+        }
+
+        double sum = 0d;
+        for (int i = 0; i < windowCount; i++) {
+            sum += window[i];
+        }
+
+        publish(sum / windowCount);
+    }
+
+    private void publish(double value) {
+        if (deadband.exceeded(value)) {
+            setValue(new DataValue(new Variant(value)));
+        }
     }
 
     public static AnalogInputNode fromInput(PiNamespace namespace, InputConfig inputConfig) {
@@ -72,7 +112,9 @@ public class AnalogInputNode extends UaVariableNode {
             new NodeId(namespaceIndex, "Pin" + inputConfig.getPin()),
             new QualifiedName(namespaceIndex, inputConfig.getName()),
             LocalizedText.english(inputConfig.getName()),
-            inputConfig
+            inputConfig,
+            namespace.getScheduledExecutor(),
+            namespace.getGpioBackend()
         );
     }
 
@@ -20,14 +20,15 @@ import java.util.Set;
 
 import com.digitalpetri.opcua.raspberrypi.GpioConfig.OutputConfig;
 import com.digitalpetri.opcua.raspberrypi.PiNamespace;
-import com.pi4j.io.gpio.GpioController;
-import com.pi4j.io.gpio.GpioFactory;
-import com.pi4j.io.gpio.GpioPinAnalogOutput;
-import com.pi4j.io.gpio.RaspiPin;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.digitalpetri.opcua.raspberrypi.gpio.OutputWriter;
 import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.UaRuntimeException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
@@ -38,28 +39,32 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
 
-public class AnalogOutputNode extends UaVariableNode {
+public class AnalogOutputNode extends UaVariableNode implements OutputNode {
 
-    private final GpioController controller = GpioFactory.getInstance();
+    private final GpioBackend.AnalogOutput output;
+    private final ShadowRegister shadow;
 
-    private final GpioPinAnalogOutput output;
+    private final int pin;
+    private final OutputWriter outputWriter;
 
     public AnalogOutputNode(UaNodeContext context,
                             NodeId nodeId,
                             QualifiedName browseName,
                             LocalizedText displayName,
-                            OutputConfig outputConfig) {
+                            OutputConfig outputConfig,
+                            OutputWriter outputWriter,
+                            GpioBackend backend) {
 
         super(context, nodeId, browseName, displayName);
 
-        output = controller.provisionAnalogOutputPin(
-            RaspiPin.getPinByAddress(outputConfig.getPin()),
-            outputConfig.getName(),
-            outputConfig.getValue()
-        );
+        this.pin = outputConfig.getPin();
+        this.outputWriter = outputWriter;
+
+        output = backend.analogOutput(outputConfig.getPin(), outputConfig.getName(), outputConfig.getValue());
+
+        shadow = new ShadowRegister(new Variant(outputConfig.getValue()));
 
         setDataType(Identifiers.Double);
-        setValue(new DataValue(new Variant(outputConfig.getValue())));
 
         Set<AccessLevel> accessLevels = AccessLevel.READ_WRITE;
         UByte accessLevel = ubyte(AccessLevel.getMask(accessLevels));
@@ -68,17 +73,50 @@ public class AnalogOutputNode extends UaVariableNode {
     }
 
     @Override
-    public synchronized void setValue(DataValue value) {
-        double d = (double) value.getValue().getValue();
+    public void setValue(DataValue value) {
+        try {
+            outputWriter.write(this, convert(value));
+        } catch (UaException e) {
+            throw new UaRuntimeException(e.getStatusCode().getValue(), e);
+        }
+    }
+
+    @Override
+    public DataValue getValue() {
+        return shadow.getValue();
+    }
+
+    @Override
+    public int getPin() {
+        return pin;
+    }
+
+    @Override
+    public Variant convert(DataValue value) throws UaException {
+        Object o = value.getValue().getValue();
+
+        if (o instanceof Number) {
+            return new Variant(((Number) o).doubleValue());
+        } else {
+            throw new UaException(StatusCodes.Bad_TypeMismatch);
+        }
+    }
+
+    @Override
+    public void apply(Variant value) {
+        double d = (double) value.getValue();
 
         output.setValue(d);
+        shadow.commanded(value);
     }
 
     @Override
-    public DataValue getValue() {
-        double value = output.getValue();
+    public void refresh(double maxAge) {
+        if (shadow.isOlderThan(maxAge)) {
+            double value = output.getValue();
 
-        return new DataValue(new Variant(value));
+            shadow.readBack(new Variant(value));
+        }
     }
 
     public static AnalogOutputNode fromOutput(PiNamespace namespace, OutputConfig outputConfig) {
@@ -89,7 +127,9 @@ public class AnalogOutputNode extends UaVariableNode {
             new NodeId(namespaceIndex, "Pin" + outputConfig.getPin()),
             new QualifiedName(namespaceIndex, outputConfig.getName()),
             LocalizedText.english(outputConfig.getName()),
-            outputConfig
+            outputConfig,
+            namespace.getOutputWriter(),
+            namespace.getGpioBackend()
         );
     }
 
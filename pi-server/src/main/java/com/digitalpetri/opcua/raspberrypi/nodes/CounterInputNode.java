@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.nodes;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.digitalpetri.opcua.raspberrypi.GpioConfig.InputConfig;
+import com.digitalpetri.opcua.raspberrypi.PiNamespace;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.google.common.collect.ImmutableList;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+/**
+ * A pulse counter, e.g. for a flow meter or tachometer.
+ * <p>
+ * The input's listener only increments a {@link LongAdder}, so counts stay exact at high pulse rates. Every publish
+ * interval the node's value is set to the total count and its Delta, Frequency (Hz) and RPM components to the
+ * pulses counted during the interval and the rates derived from them.
+ */
+public class CounterInputNode extends UaVariableNode {
+
+    private final LongAdder count = new LongAdder();
+
+    private long lastCount = 0;
+    private long lastNanos = System.nanoTime();
+
+    private final GpioBackend.DigitalInput input;
+
+    private final UaVariableNode deltaNode;
+    private final UaVariableNode frequencyNode;
+    private final UaVariableNode rpmNode;
+
+    private final double pulsesPerRevolution;
+
+    public CounterInputNode(UaNodeContext context,
+                            NodeId nodeId,
+                            QualifiedName browseName,
+                            LocalizedText displayName,
+                            InputConfig inputConfig,
+                            ScheduledExecutorService executor,
+                            GpioBackend backend) {
+
+        super(context, nodeId, browseName, displayName);
+
+        pulsesPerRevolution = inputConfig.getPulsesPerRevolution() > 0 ? inputConfig.getPulsesPerRevolution() : 1d;
+
+        setDataType(Identifiers.Int64);
+        setValue(new DataValue(new Variant(0L)));
+
+        deltaNode = InputComponents.create(context, this, "Delta", Identifiers.Int64);
+        deltaNode.setValue(new DataValue(new Variant(0L)));
+
+        frequencyNode = InputComponents.create(context, this, "Frequency", Identifiers.Double);
+        frequencyNode.setValue(new DataValue(new Variant(0d)));
+
+        rpmNode = InputComponents.create(context, this, "RPM", Identifiers.Double);
+        rpmNode.setValue(new DataValue(new Variant(0d)));
+
+        boolean pullDown = "pull-down".equalsIgnoreCase(inputConfig.getResistance());
+
+        input = backend.digitalInput(
+            inputConfig.getPin(),
+            inputConfig.getName(),
+            pullDown ? GpioBackend.Pull.DOWN : GpioBackend.Pull.UP
+        );
+
+        String countEdge = inputConfig.getCountEdge() != null ? inputConfig.getCountEdge() : "rising";
+
+        if ("both".equalsIgnoreCase(countEdge)) {
+            input.addListener(high -> count.increment());
+        } else {
+            boolean rising = !"falling".equalsIgnoreCase(countEdge);
+
+            input.addListener(high -> {
+                if (high == rising) {
+                    count.increment();
+                }
+            });
+        }
+
+        long interval = Math.max(1, inputConfig.getPublishInterval());
+
+        executor.scheduleAtFixedRate(this::publish, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publish the count and the rates since the last publish. Only ever run by the publishing task.
+     */
+    private void publish() {
+        long now = System.nanoTime();
+        long total = count.sum();
+
+        long delta = total - lastCount;
+        double seconds = (now - lastNanos) / 1e9;
+
+        lastCount = total;
+        lastNanos = now;
+
+        double frequency = seconds > 0 ? delta / seconds : 0d;
+        double rpm = frequency * 60d / pulsesPerRevolution;
+
+        setValue(new DataValue(new Variant(total)));
+        deltaNode.setValue(new DataValue(new Variant(delta)));
+        frequencyNode.setValue(new DataValue(new Variant(frequency)));
+        rpmNode.setValue(new DataValue(new Variant(rpm)));
+    }
+
+    /**
+     * @return the Delta, Frequency and RPM component nodes.
+     */
+    public List<UaVariableNode> getComponentNodes() {
+        return ImmutableList.of(deltaNode, frequencyNode, rpmNode);
+    }
+
+    public static CounterInputNode fromInput(PiNamespace namespace, InputConfig inputConfig) {
+        UShort namespaceIndex = namespace.getNamespaceIndex();
+
+        CounterInputNode node = new CounterInputNode(
+            namespace.getNodeContext(),
+            new NodeId(namespaceIndex, "Pin" + inputConfig.getPin()),
+            new QualifiedName(namespaceIndex, inputConfig.getName()),
+            LocalizedText.english(inputConfig.getName()),
+            inputConfig,
+            namespace.getScheduledExecutor(),
+            namespace.getGpioBackend()
+        );
+
+        node.getComponentNodes().forEach(namespace::addNode);
+
+        return node;
+    }
+
+}
@@ -16,69 +16,200 @@
 
 package com.digitalpetri.opcua.raspberrypi.nodes;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import com.digitalpetri.opcua.raspberrypi.GpioConfig.InputConfig;
 import com.digitalpetri.opcua.raspberrypi.PiNamespace;
-import com.pi4j.io.gpio.GpioController;
-import com.pi4j.io.gpio.GpioFactory;
-import com.pi4j.io.gpio.GpioPinDigitalInput;
-import com.pi4j.io.gpio.PinPullResistance;
-import com.pi4j.io.gpio.PinState;
-import com.pi4j.io.gpio.RaspiPin;
-import com.pi4j.io.gpio.event.GpioPinListenerDigital;
+import com.digitalpetri.opcua.raspberrypi.gpio.EdgeBuffer;
+import com.digitalpetri.opcua.raspberrypi.gpio.EdgeDispatcher;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.google.common.collect.Lists;
+import org.eclipse.milo.opcua.sdk.core.ValueRanks;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class DigitalInputNode extends UaVariableNode {
 
-    private final GpioController controller = GpioFactory.getInstance();
+    /**
+     * Offset, in 100ns ticks, between the OPC UA epoch (1601) and the Unix epoch.
+     */
+    private static final long EPOCH_OFFSET_TICKS = 116444736000000000L;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final GpioBackend.DigitalInput input;
+    private final EdgeDispatcher dispatcher;
+
+    /**
+     * Whether the input's level has been read yet; it can't be while a remote backend's daemon is unreachable.
+     */
+    private volatile boolean communicating;
+
+    /**
+     * Recent edges and the nodes exposing them; empty if the input keeps no edge history.
+     */
+    private final Optional<EdgeBuffer> edgeBuffer;
+    private final List<UaVariableNode> edgeHistoryNodes = Lists.newArrayList();
+    private final AtomicBoolean edgeHistoryPending = new AtomicBoolean(false);
 
-    private final GpioPinDigitalInput input;
+    private UaVariableNode edgeCountNode;
+    private UaVariableNode edgeTimesNode;
+    private UaVariableNode edgeStatesNode;
+
+    private final long edgeHistoryInterval;
+    private final ScheduledExecutorService executor;
 
     public DigitalInputNode(UaNodeContext context,
                             NodeId nodeId,
                             QualifiedName browseName,
                             LocalizedText displayName,
-                            InputConfig inputConfig) {
+                            InputConfig inputConfig,
+                            ScheduledExecutorService executor,
+                            GpioBackend backend) {
 
         super(context, nodeId, browseName, displayName);
 
+        this.executor = executor;
+
+        edgeHistoryInterval = Math.max(1, inputConfig.getEdgeHistoryInterval());
+
+        if (inputConfig.getEdgeHistory() > 0) {
+            edgeBuffer = Optional.of(new EdgeBuffer(inputConfig.getEdgeHistory()));
+
+            edgeCountNode = edgeHistoryNode(context, "EdgeCount", Identifiers.Int64);
+            edgeCountNode.setValue(new DataValue(new Variant(0L)));
+
+            edgeTimesNode = edgeHistoryNode(context, "EdgeTimes", Identifiers.UtcTime);
+            edgeTimesNode.setValueRank(ValueRanks.OneDimension);
+            edgeTimesNode.setValue(new DataValue(new Variant(new DateTime[0])));
+
+            edgeStatesNode = edgeHistoryNode(context, "EdgeStates", Identifiers.Boolean);
+            edgeStatesNode.setValueRank(ValueRanks.OneDimension);
+            edgeStatesNode.setValue(new DataValue(new Variant(new Boolean[0])));
+        } else {
+            edgeBuffer = Optional.empty();
+        }
+
         boolean pullDown = inputConfig.getResistance().equalsIgnoreCase("pull-down");
 
-        input = controller.provisionDigitalInputPin(
-            RaspiPin.getPinByAddress(inputConfig.getPin()),
+        input = backend.digitalInput(
+            inputConfig.getPin(),
             inputConfig.getName(),
-            pullDown ? PinPullResistance.PULL_DOWN : PinPullResistance.PULL_UP
+            pullDown ? GpioBackend.Pull.DOWN : GpioBackend.Pull.UP
+        );
+
+        boolean initial = false;
+        try {
+            initial = input.isHigh();
+            communicating = true;
+        } catch (RuntimeException e) {
+            logger.warn("Error reading input \"{}\"; it reads Bad_NoCommunication until the backend reports it: {}",
+                inputConfig.getName(), e.getMessage());
+        }
+
+        setDataType(Identifiers.Boolean);
+        setValue(communicating ?
+            new DataValue(new Variant(initial)) :
+            new DataValue(StatusCodes.Bad_NoCommunication));
+
+        dispatcher = new EdgeDispatcher(
+            initial,
+            inputConfig.getDebounce(),
+            inputConfig.getCoalesceWindow(),
+            executor,
+            high -> setValue(new DataValue(new Variant(high)))
         );
 
-        input.addListener((GpioPinListenerDigital) event -> {
-            PinState state = event.getState();
+        input.addListener(high -> {
+            long nanoTime = System.nanoTime();
+
+            edgeBuffer.ifPresent(buffer -> {
+                buffer.add(high, nanoTime);
 
-            setValue(new DataValue(new Variant(state.isHigh())));
+                if (edgeHistoryPending.compareAndSet(false, true)) {
+                    executor.schedule(this::publishEdgeHistory, edgeHistoryInterval, TimeUnit.MILLISECONDS);
+                }
+            });
+
+            if (!communicating) {
+                communicating = true;
+                setValue(new DataValue(new Variant(high)));
+            }
+
+            dispatcher.edge(high);
         });
+    }
 
-        PinState state = input.getState();
+    private UaVariableNode edgeHistoryNode(UaNodeContext context, String name, NodeId dataType) {
+        UaVariableNode node = InputComponents.create(context, this, name, dataType);
 
-        setDataType(Identifiers.Boolean);
-        setValue(new DataValue(new Variant(state.isHigh())));
+        edgeHistoryNodes.add(node);
+
+        return node;
+    }
+
+    /**
+     * Copy the edge buffer into the edge history nodes. Runs at most once per edge history interval while edges
+     * are arriving.
+     */
+    private void publishEdgeHistory() {
+        edgeHistoryPending.set(false);
+
+        edgeBuffer.ifPresent(buffer -> {
+            EdgeBuffer.Snapshot snapshot = buffer.snapshot();
+
+            DateTime[] times = new DateTime[snapshot.size()];
+            Boolean[] states = new Boolean[snapshot.size()];
+
+            for (int i = 0; i < snapshot.size(); i++) {
+                times[i] = new DateTime(snapshot.getTimestamp(i) / 100 + EPOCH_OFFSET_TICKS);
+                states[i] = snapshot.getState(i);
+            }
+
+            edgeCountNode.setValue(new DataValue(new Variant(snapshot.getCount())));
+            edgeTimesNode.setValue(new DataValue(new Variant(times)));
+            edgeStatesNode.setValue(new DataValue(new Variant(states)));
+        });
+    }
+
+    /**
+     * @return the EdgeCount, EdgeTimes and EdgeStates child nodes, if this input keeps an edge history.
+     */
+    public List<UaVariableNode> getEdgeHistoryNodes() {
+        return edgeHistoryNodes;
     }
 
     public static DigitalInputNode fromInput(PiNamespace namespace, InputConfig inputConfig) {
         UShort namespaceIndex = namespace.getNamespaceIndex();
 
-        return new DigitalInputNode(
+        DigitalInputNode node = new DigitalInputNode(
             namespace.getNodeContext(),
             new NodeId(namespaceIndex, "Pin" + inputConfig.getPin()),
             new QualifiedName(namespaceIndex, inputConfig.getName()),
             LocalizedText.english(inputConfig.getName()),
-            inputConfig
+            inputConfig,
+            namespace.getScheduledExecutor(),
+            namespace.getGpioBackend()
         );
+
+        node.getEdgeHistoryNodes().forEach(namespace::addNode);
+
+        return node;
     }
 
 }
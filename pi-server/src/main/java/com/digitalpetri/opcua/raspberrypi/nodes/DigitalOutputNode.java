@@ -20,15 +20,15 @@ import java.util.Set;
 
 import com.digitalpetri.opcua.raspberrypi.GpioConfig.OutputConfig;
 import com.digitalpetri.opcua.raspberrypi.PiNamespace;
-import com.pi4j.io.gpio.GpioController;
-import com.pi4j.io.gpio.GpioFactory;
-import com.pi4j.io.gpio.GpioPinDigitalOutput;
-import com.pi4j.io.gpio.PinState;
-import com.pi4j.io.gpio.RaspiPin;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.digitalpetri.opcua.raspberrypi.gpio.OutputWriter;
 import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.UaRuntimeException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
@@ -39,30 +39,34 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
 
-public class DigitalOutputNode extends UaVariableNode {
+public class DigitalOutputNode extends UaVariableNode implements OutputNode {
 
-    private final GpioController controller = GpioFactory.getInstance();
+    private final GpioBackend.DigitalOutput output;
+    private final ShadowRegister shadow;
 
-    private final GpioPinDigitalOutput output;
+    private final int pin;
+    private final OutputWriter outputWriter;
 
     public DigitalOutputNode(UaNodeContext context,
                              NodeId nodeId,
                              QualifiedName browseName,
                              LocalizedText displayName,
-                             OutputConfig outputConfig) {
+                             OutputConfig outputConfig,
+                             OutputWriter outputWriter,
+                             GpioBackend backend) {
 
         super(context, nodeId, browseName, displayName);
 
+        this.pin = outputConfig.getPin();
+        this.outputWriter = outputWriter;
+
         boolean high = outputConfig.getValue() > 0;
 
-        output = controller.provisionDigitalOutputPin(
-            RaspiPin.getPinByAddress(outputConfig.getPin()),
-            outputConfig.getName(),
-            high ? PinState.HIGH : PinState.LOW
-        );
+        output = backend.digitalOutput(outputConfig.getPin(), outputConfig.getName(), high);
+
+        shadow = new ShadowRegister(new Variant(high));
 
         setDataType(Identifiers.Boolean);
-        setValue(new DataValue(new Variant(high)));
 
         Set<AccessLevel> accessLevels = AccessLevel.READ_WRITE;
         UByte accessLevel = ubyte(AccessLevel.getMask(accessLevels));
@@ -71,17 +75,50 @@ public class DigitalOutputNode extends UaVariableNode {
     }
 
     @Override
-    public synchronized void setValue(DataValue value) {
-        boolean high = (boolean) value.getValue().getValue();
-
-        output.setState(high);
+    public void setValue(DataValue value) {
+        try {
+            outputWriter.write(this, convert(value));
+        } catch (UaException e) {
+            throw new UaRuntimeException(e.getStatusCode().getValue(), e);
+        }
     }
 
     @Override
     public DataValue getValue() {
-        boolean high = output.getState().isHigh();
+        return shadow.getValue();
+    }
+
+    @Override
+    public int getPin() {
+        return pin;
+    }
+
+    @Override
+    public Variant convert(DataValue value) throws UaException {
+        Object o = value.getValue().getValue();
+
+        if (o instanceof Boolean) {
+            return value.getValue();
+        } else {
+            throw new UaException(StatusCodes.Bad_TypeMismatch);
+        }
+    }
+
+    @Override
+    public void apply(Variant value) {
+        boolean high = (boolean) value.getValue();
+
+        output.setHigh(high);
+        shadow.commanded(value);
+    }
+
+    @Override
+    public void refresh(double maxAge) {
+        if (shadow.isOlderThan(maxAge)) {
+            boolean high = output.isHigh();
 
-        return new DataValue(new Variant(high));
+            shadow.readBack(new Variant(high));
+        }
     }
 
     public static DigitalOutputNode fromOutput(PiNamespace namespace, OutputConfig outputConfig) {
@@ -92,7 +129,9 @@ public class DigitalOutputNode extends UaVariableNode {
             new NodeId(namespaceIndex, "Pin" + outputConfig.getPin()),
             new QualifiedName(namespaceIndex, outputConfig.getName()),
             LocalizedText.english(outputConfig.getName()),
-            outputConfig
+            outputConfig,
+            namespace.getOutputWriter(),
+            namespace.getGpioBackend()
         );
     }
 
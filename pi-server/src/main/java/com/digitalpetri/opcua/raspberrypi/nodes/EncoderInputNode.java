@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.nodes;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.digitalpetri.opcua.raspberrypi.GpioConfig.InputConfig;
+import com.digitalpetri.opcua.raspberrypi.PiNamespace;
+import com.digitalpetri.opcua.raspberrypi.gpio.GpioBackend;
+import com.google.common.collect.ImmutableList;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+
+/**
+ * A quadrature encoder on a pair of pins.
+ * <p>
+ * Every edge on either channel samples both pins and feeds the A/B state through a transition table, counting one
+ * step per legal transition. Position and the last A/B state are packed into one {@link AtomicLong} and updated with
+ * compare-and-set, so the listeners never lock.
+ * <p>
+ * A transition that changes both channels at once means an edge was missed and the direction is unknown: it's
+ * counted in the Errors component and the state is resynchronized to the current levels without moving the
+ * position.
+ * <p>
+ * Every publish interval the node's value is set to the position, and its Direction (-1, 0 or 1) and Velocity
+ * (steps per second) components to the movement during the interval.
+ */
+public class EncoderInputNode extends UaVariableNode {
+
+    private static final int ILLEGAL = 2;
+
+    /**
+     * Position change indexed by {@code (oldAB << 2) | newAB}, where A is the high bit.
+     */
+    private static final int[] TRANSITIONS = {
+        0, -1, 1, ILLEGAL,
+        1, 0, ILLEGAL, -1,
+        -1, ILLEGAL, 0, 1,
+        ILLEGAL, 1, -1, 0
+    };
+
+    /**
+     * {@code position << 2 | ab}.
+     */
+    private final AtomicLong state = new AtomicLong();
+    private final LongAdder errors = new LongAdder();
+
+    private long lastPosition = 0;
+    private long lastNanos = System.nanoTime();
+
+    private final GpioBackend.DigitalInput inputA;
+    private final GpioBackend.DigitalInput inputB;
+
+    private final UaVariableNode directionNode;
+    private final UaVariableNode velocityNode;
+    private final UaVariableNode errorsNode;
+
+    public EncoderInputNode(UaNodeContext context,
+                            NodeId nodeId,
+                            QualifiedName browseName,
+                            LocalizedText displayName,
+                            InputConfig inputConfig,
+                            ScheduledExecutorService executor,
+                            GpioBackend backend) {
+
+        super(context, nodeId, browseName, displayName);
+
+        if (inputConfig.getPinB() < 0) {
+            throw new IllegalArgumentException("encoder input \"" + inputConfig.getName() + "\" has no pinB");
+        }
+        if (inputConfig.getPinB() == inputConfig.getPin()) {
+            throw new IllegalArgumentException(
+                "encoder input \"" + inputConfig.getName() + "\" has pinB equal to pin " + inputConfig.getPin());
+        }
+
+        setDataType(Identifiers.Int64);
+        setValue(new DataValue(new Variant(0L)));
+
+        directionNode = InputComponents.create(context, this, "Direction", Identifiers.Int32);
+        directionNode.setValue(new DataValue(new Variant(0)));
+
+        velocityNode = InputComponents.create(context, this, "Velocity", Identifiers.Double);
+        velocityNode.setValue(new DataValue(new Variant(0d)));
+
+        errorsNode = InputComponents.create(context, this, "Errors", Identifiers.Int64);
+        errorsNode.setValue(new DataValue(new Variant(0L)));
+
+        GpioBackend.Pull pull = "pull-down".equalsIgnoreCase(inputConfig.getResistance()) ?
+            GpioBackend.Pull.DOWN : GpioBackend.Pull.UP;
+
+        inputA = backend.digitalInput(
+            inputConfig.getPin(),
+            inputConfig.getName() + "/A",
+            pull
+        );
+
+        inputB = backend.digitalInput(
+            inputConfig.getPinB(),
+            inputConfig.getName() + "/B",
+            pull
+        );
+
+        state.set(ab(inputA.isHigh(), inputB.isHigh()));
+
+        inputA.addListener(high -> transition(ab(high, inputB.isHigh())));
+
+        inputB.addListener(high -> transition(ab(inputA.isHigh(), high)));
+
+        long interval = Math.max(1, inputConfig.getPublishInterval());
+
+        executor.scheduleAtFixedRate(this::publish, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static int ab(boolean a, boolean b) {
+        return (a ? 2 : 0) | (b ? 1 : 0);
+    }
+
+    private void transition(int ab) {
+        long current;
+        long next;
+        int delta;
+
+        do {
+            current = state.get();
+
+            delta = TRANSITIONS[(int) ((current & 3) << 2) | ab];
+
+            long position = current >> 2;
+
+            if (delta != ILLEGAL) {
+                position += delta;
+            }
+
+            next = (position << 2) | ab;
+        } while (!state.compareAndSet(current, next));
+
+        if (delta == ILLEGAL) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Publish the position and the movement since the last publish. Only ever run by the publishing task.
+     */
+    private void publish() {
+        long now = System.nanoTime();
+        long position = state.get() >> 2;
+
+        long delta = position - lastPosition;
+        double seconds = (now - lastNanos) / 1e9;
+
+        lastPosition = position;
+        lastNanos = now;
+
+        setValue(new DataValue(new Variant(position)));
+        directionNode.setValue(new DataValue(new Variant(Long.signum(delta))));
+        velocityNode.setValue(new DataValue(new Variant(seconds > 0 ? delta / seconds : 0d)));
+        errorsNode.setValue(new DataValue(new Variant(errors.sum())));
+    }
+
+    /**
+     * @return the Direction, Velocity and Errors component nodes.
+     */
+    public List<UaVariableNode> getComponentNodes() {
+        return ImmutableList.of(directionNode, velocityNode, errorsNode);
+    }
+
+    public static EncoderInputNode fromInput(PiNamespace namespace, InputConfig inputConfig) {
+        UShort namespaceIndex = namespace.getNamespaceIndex();
+
+        EncoderInputNode node = new EncoderInputNode(
+            namespace.getNodeContext(),
+            new NodeId(namespaceIndex, "Pin" + inputConfig.getPin()),
+            new QualifiedName(namespaceIndex, inputConfig.getName()),
+            LocalizedText.english(inputConfig.getName()),
+            inputConfig,
+            namespace.getScheduledExecutor(),
+            namespace.getGpioBackend()
+        );
+
+        node.getComponentNodes().forEach(namespace::addNode);
+
+        return node;
+    }
+
+}
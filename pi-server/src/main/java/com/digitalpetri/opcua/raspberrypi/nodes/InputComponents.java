@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.nodes;
+
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+
+final class InputComponents {
+
+    private InputComponents() {}
+
+    /**
+     * Create a variable node named {@code name} and reference it as a component of {@code parent}. The caller is
+     * responsible for adding it to the namespace.
+     *
+     * @param context  the {@link UaNodeContext}.
+     * @param parent   the input node the component belongs to.
+     * @param name     the browse and display name of the component.
+     * @param dataType the {@link NodeId} of the component's data type.
+     * @return the new component node.
+     */
+    static UaVariableNode create(UaNodeContext context, UaVariableNode parent, String name, NodeId dataType) {
+        NodeId parentId = parent.getNodeId();
+
+        UaVariableNode node = new UaVariableNode(
+            context,
+            new NodeId(parentId.getNamespaceIndex(), parentId.getIdentifier() + "/" + name),
+            new QualifiedName(parentId.getNamespaceIndex(), name),
+            LocalizedText.english(name)
+        );
+
+        node.setDataType(dataType);
+
+        parent.addReference(new Reference(
+            parentId,
+            Identifiers.HasComponent,
+            node.getNodeId().expanded(),
+            node.getNodeClass(),
+            true
+        ));
+
+        return node;
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.nodes;
+
+import com.digitalpetri.opcua.raspberrypi.gpio.OutputWriter;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * A node backed by a GPIO output pin whose Value attribute is served from a {@link ShadowRegister}.
+ */
+public interface OutputNode {
+
+    /**
+     * @return the pin number this node drives.
+     */
+    int getPin();
+
+    /**
+     * Validate {@code value} and convert it to the {@link Variant} that will be applied to the pin.
+     *
+     * @param value the {@link DataValue} a client wrote.
+     * @return the {@link Variant} to apply.
+     * @throws UaException if {@code value} can't be written to this node.
+     */
+    Variant convert(DataValue value) throws UaException;
+
+    /**
+     * Drive the pin to {@code value}. Only called from the {@link OutputWriter} thread.
+     *
+     * @param value a {@link Variant} previously returned by {@link #convert(DataValue)}.
+     */
+    void apply(Variant value);
+
+    /**
+     * Read the pin back from hardware if the cached value is older than {@code maxAge}.
+     *
+     * @param maxAge the maximum age, in milliseconds, of a cached value the caller will accept.
+     */
+    void refresh(double maxAge);
+
+}
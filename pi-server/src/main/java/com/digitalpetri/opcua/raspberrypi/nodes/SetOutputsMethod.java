@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.nodes;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.digitalpetri.opcua.raspberrypi.gpio.OutputWriter;
+import com.google.common.collect.Maps;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaInputArgument;
+import org.eclipse.milo.opcua.sdk.server.annotations.UaMethod;
+import org.eclipse.milo.opcua.sdk.server.util.AnnotationBasedInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.UaException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * Sets several outputs at once. All values are handed to the {@link OutputWriter} as one batch, so they're applied
+ * together in a single pass of the writer thread.
+ * <p>
+ * Milo's annotation-based handlers complete synchronously, so {@link #invoke} blocks the thread the server calls it
+ * on until the batch has been applied, or for at most {@link #TIMEOUT_SECONDS}. The writer thread only ever drives
+ * pins, so this is normally well under a millisecond.
+ */
+public class SetOutputsMethod {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final Map<Integer, OutputNode> outputs;
+    private final OutputWriter outputWriter;
+
+    public SetOutputsMethod(Map<Integer, OutputNode> outputs, OutputWriter outputWriter) {
+        this.outputs = outputs;
+        this.outputWriter = outputWriter;
+    }
+
+    @UaMethod
+    public void invoke(
+        InvocationContext context,
+
+        @UaInputArgument(
+            name = "Pins",
+            description = "The output pins to set.")
+            Integer[] pins,
+
+        @UaInputArgument(
+            name = "Values",
+            description = "The value for each pin. Digital outputs are set high for any non-zero value.")
+            Double[] values) {
+
+        if (pins == null || values == null || pins.length != values.length) {
+            context.setFailure(new UaException(StatusCodes.Bad_InvalidArgument));
+            return;
+        }
+
+        Map<OutputNode, Variant> batch = Maps.newLinkedHashMap();
+
+        for (int i = 0; i < pins.length; i++) {
+            if (pins[i] == null || values[i] == null) {
+                context.setFailure(new UaException(StatusCodes.Bad_InvalidArgument,
+                    "null pin or value at index " + i));
+                return;
+            }
+
+            OutputNode node = outputs.get(pins[i]);
+
+            if (node == null) {
+                context.setFailure(new UaException(StatusCodes.Bad_InvalidArgument,
+                    "no output configured for pin " + pins[i]));
+                return;
+            }
+
+            if (node instanceof DigitalOutputNode) {
+                batch.put(node, new Variant(values[i] != 0d));
+            } else {
+                batch.put(node, new Variant(values[i]));
+            }
+        }
+
+        try {
+            outputWriter.write(batch).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            context.setFailure(new UaException(StatusCodes.Bad_UnexpectedError, e));
+        } catch (ExecutionException e) {
+            context.setFailure(new UaException(StatusCodes.Bad_UnexpectedError, e.getCause()));
+        } catch (TimeoutException e) {
+            context.setFailure(new UaException(StatusCodes.Bad_Timeout, e));
+        }
+    }
+
+}
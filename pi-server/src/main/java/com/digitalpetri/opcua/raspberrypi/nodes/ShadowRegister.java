@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.nodes;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+
+/**
+ * Caches the last value commanded to an output pin and the last value read back from it, each with the time it was
+ * recorded, so attribute reads can be served without touching the hardware.
+ */
+public class ShadowRegister {
+
+    private volatile Entry commanded;
+    private volatile Entry readBack;
+
+    public ShadowRegister(Variant initialValue) {
+        commanded = new Entry(initialValue);
+    }
+
+    /**
+     * Record {@code value} as having been commanded to the pin.
+     *
+     * @param value the value written to the pin.
+     */
+    public void commanded(Variant value) {
+        commanded = new Entry(value);
+    }
+
+    /**
+     * Record {@code value} as having been read back from the pin.
+     *
+     * @param value the value read from the pin.
+     */
+    public void readBack(Variant value) {
+        readBack = new Entry(value);
+    }
+
+    /**
+     * @return the most recently recorded value, commanded or read back.
+     */
+    public DataValue getValue() {
+        return latest().value;
+    }
+
+    /**
+     * @param maxAge the maximum age, in milliseconds, a cached value may have.
+     * @return {@code true} if the most recently recorded value is older than {@code maxAge}.
+     */
+    public boolean isOlderThan(double maxAge) {
+        long ageNanos = System.nanoTime() - latest().nanoTime;
+
+        return ageNanos >= (long) (maxAge * 1_000_000d);
+    }
+
+    private Entry latest() {
+        Entry c = commanded;
+        Entry r = readBack;
+
+        return r != null && r.nanoTime - c.nanoTime > 0 ? r : c;
+    }
+
+    private static class Entry {
+        final DataValue value;
+        final long nanoTime;
+
+        Entry(Variant value) {
+            this.value = new DataValue(value, StatusCode.GOOD, DateTime.now());
+            this.nanoTime = System.nanoTime();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.util;
+
+/**
+ * Decides whether a new sample differs enough from the last published one to be worth publishing.
+ * <p>
+ * The absolute deadband is a change in engineering units; the percent deadband is a change relative to the magnitude
+ * of the last published value. A sample is published only if it exceeds every configured (non-zero) deadband. With
+ * no deadband configured every sample is published.
+ * <p>
+ * Checking a sample doesn't allocate, so samples can be filtered before a DataValue is created for them.
+ */
+public class Deadband {
+
+    private final double absolute;
+    private final double percent;
+
+    private double last;
+    private boolean published = false;
+
+    /**
+     * @param absolute the absolute deadband, or 0 for none.
+     * @param percent  the percent deadband, or 0 for none.
+     */
+    public Deadband(double absolute, double percent) {
+        this.absolute = Math.max(0d, absolute);
+        this.percent = Math.max(0d, percent);
+    }
+
+    /**
+     * Check {@code value} against the deadband and, if it should be published, remember it as the last published
+     * value.
+     *
+     * @param value the new sample.
+     * @return {@code true} if {@code value} should be published.
+     */
+    public synchronized boolean exceeded(double value) {
+        if (published && (absolute > 0d || percent > 0d)) {
+            double delta = Math.abs(value - last);
+
+            if (absolute > 0d && delta <= absolute) {
+                return false;
+            }
+
+            if (percent > 0d && delta <= Math.abs(last) * percent / 100d) {
+                return false;
+            }
+        }
+
+        last = value;
+        published = true;
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadband{" +
+            "absolute=" + absolute +
+            ", percent=" + percent +
+            '}';
+    }
+
+}
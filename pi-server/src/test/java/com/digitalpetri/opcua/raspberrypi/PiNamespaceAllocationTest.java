@@ -0,0 +1,253 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.digitalpetri.opcua.raspberrypi.GpioConfig.InputConfig;
+import com.digitalpetri.opcua.raspberrypi.GpioConfig.OutputConfig;
+import com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend;
+import com.google.common.collect.Lists;
+import com.sun.management.ThreadMXBean;
+import org.eclipse.milo.opcua.sdk.server.DiagnosticsContext;
+import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
+import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that serving reads and writes allocates a bounded number of bytes per item, whatever the number of requests
+ * served.
+ * <p>
+ * Allocation is summed over every live thread, so the work a write hands to the output writer thread and the server's
+ * executor is counted along with the calling thread's. The GPIO pins are on a {@link MemoryMappedBackend} mapping a
+ * plain file.
+ */
+public class PiNamespaceAllocationTest {
+
+    private static final UShort NAMESPACE_INDEX = ushort(2);
+
+    private static final int PINS = 8;
+    private static final int REQUESTS = 20_000;
+
+    /**
+     * Generous enough for the DataValues Milo builds per item, and for the output writer's per-pin futures and batch
+     * bookkeeping on writes, far below what per-item lookups and lambdas used to cost.
+     */
+    private static final long MAX_READ_BYTES_PER_ITEM = 256;
+    private static final long MAX_WRITE_BYTES_PER_ITEM = 1024;
+
+    private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Path file;
+    private MemoryMappedBackend backend;
+    private ScheduledExecutorService executor;
+    private OpcUaServer server;
+    private PiNamespace namespace;
+
+    private List<ReadValueId> reads;
+    private List<WriteValue> writes;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        file = Files.createTempFile("gpiomem", ".bin");
+        Files.write(file, new byte[MemoryMappedBackend.BLOCK_SIZE]);
+        backend = new MemoryMappedBackend(file, 1000);
+
+        executor = Executors.newSingleThreadScheduledExecutor();
+
+        GpioConfig gpioConfig = new GpioConfig();
+        gpioConfig.setBackend(MemoryMappedBackend.BACKEND);
+
+        for (int i = 0; i < PINS; i++) {
+            OutputConfig output = new OutputConfig();
+            output.setPin(i);
+            output.setName("Output" + i);
+            output.setType("digital");
+            gpioConfig.getOutputs().add(output);
+
+            InputConfig input = new InputConfig();
+            input.setPin(PINS + i);
+            input.setName("Input" + i);
+            input.setType("digital");
+            input.setResistance("pull-down");
+            gpioConfig.getInputs().add(input);
+        }
+
+        server = mock(OpcUaServer.class);
+        when(server.getNodeManager()).thenReturn(new UaNodeManager());
+        when(server.getExecutorService()).thenReturn(executor);
+        when(server.getScheduledExecutorService()).thenReturn(executor);
+
+        PiServer piServer = mock(PiServer.class);
+        when(piServer.getServer()).thenReturn(server);
+        when(piServer.getGpioConfig()).thenReturn(gpioConfig);
+        when(piServer.getGpioBackend()).thenReturn(backend);
+
+        namespace = new PiNamespace(piServer, NAMESPACE_INDEX);
+
+        reads = Lists.newArrayList();
+        writes = Lists.newArrayList();
+
+        for (int i = 0; i < PINS; i++) {
+            reads.add(readValueId("Pin" + i));
+            reads.add(readValueId("Pin" + (PINS + i)));
+
+            writes.add(new WriteValue(
+                new NodeId(NAMESPACE_INDEX, "Pin" + i),
+                AttributeId.Value.uid(),
+                null,
+                new DataValue(new Variant(i % 2 == 0))
+            ));
+        }
+
+        reads.add(readValueId("NoSuchPin"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (backend != null) {
+            backend.shutdown();
+        }
+        if (file != null) {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void readsAllocateABoundedAmountPerItem() throws Exception {
+        List<DataValue> values = read();
+
+        assertEquals(reads.size(), values.size());
+        assertEquals(new StatusCode(StatusCodes.Bad_NodeIdUnknown), values.get(values.size() - 1).getStatusCode());
+
+        // Warm up, then measure.
+        for (int i = 0; i < REQUESTS; i++) {
+            read();
+        }
+
+        long before = allocatedBytes();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            read();
+        }
+
+        long perItem = (allocatedBytes() - before) / ((long) REQUESTS * reads.size());
+
+        assertTrue("read allocated " + perItem + " bytes per item", perItem <= MAX_READ_BYTES_PER_ITEM);
+    }
+
+    @Test
+    public void writesAllocateABoundedAmountPerItem() throws Exception {
+        List<StatusCode> results = write();
+
+        results.forEach(result -> assertEquals(StatusCode.GOOD, result));
+
+        for (int i = 0; i < REQUESTS; i++) {
+            write();
+        }
+
+        long before = allocatedBytes();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            write();
+        }
+
+        long perItem = (allocatedBytes() - before) / ((long) REQUESTS * writes.size());
+
+        assertTrue("write allocated " + perItem + " bytes per item", perItem <= MAX_WRITE_BYTES_PER_ITEM);
+    }
+
+    private List<DataValue> read() throws Exception {
+        CompletableFuture<List<DataValue>> future = new CompletableFuture<>();
+
+        // A maxAge of a minute is served from the shadow registers without reading the pins back.
+        namespace.read(
+            new PiNamespace.ReadContext(server, null, future, new DiagnosticsContext<>()),
+            60_000d,
+            TimestampsToReturn.Both,
+            reads
+        );
+
+        return future.get();
+    }
+
+    private List<StatusCode> write() throws Exception {
+        CompletableFuture<List<StatusCode>> future = new CompletableFuture<>();
+
+        namespace.write(new PiNamespace.WriteContext(server, null, future, new DiagnosticsContext<>()), writes);
+
+        return future.get();
+    }
+
+    /**
+     * @return the bytes allocated so far by every live thread.
+     */
+    private long allocatedBytes() {
+        long total = 0;
+
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            // -1 for a thread that exited after its id was taken.
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+
+        return total;
+    }
+
+    private static ReadValueId readValueId(String id) {
+        return new ReadValueId(
+            new NodeId(NAMESPACE_INDEX, id),
+            AttributeId.Value.uid(),
+            null,
+            QualifiedName.NULL_VALUE
+        );
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EdgeBufferTest {
+
+    @Test
+    public void keepsTheMostRecentEdgesOldestFirst() {
+        EdgeBuffer buffer = new EdgeBuffer(4);
+        long base = System.nanoTime();
+
+        for (int i = 0; i < 6; i++) {
+            buffer.add(i % 2 == 1, base + i * 1000L);
+        }
+
+        EdgeBuffer.Snapshot snapshot = buffer.snapshot();
+
+        assertEquals(6, snapshot.getCount());
+        assertEquals(4, snapshot.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i % 2 == 1, snapshot.getState(i));
+
+            if (i > 0) {
+                assertEquals(1000L, snapshot.getTimestamp(i) - snapshot.getTimestamp(i - 1));
+            }
+        }
+    }
+
+    @Test
+    public void timestampsAreWallClockTime() {
+        EdgeBuffer buffer = new EdgeBuffer(1);
+        buffer.add(true, System.nanoTime());
+
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        long timestamp = buffer.snapshot().getTimestamp(0);
+
+        assertTrue(Math.abs(now - timestamp) < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void concurrentSnapshotsOnlySeeWholeEdges() throws Exception {
+        EdgeBuffer buffer = new EdgeBuffer(8);
+        AtomicBoolean done = new AtomicBoolean(false);
+        long base = System.nanoTime();
+
+        // Every edge's state is the parity of its timestamp offset, so a torn read shows up as a mismatch.
+        Thread writer = new Thread(() -> {
+            for (long i = 0; !done.get(); i++) {
+                buffer.add((i & 1) == 1, base + i);
+            }
+        });
+        writer.start();
+
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+
+            while (System.nanoTime() < deadline) {
+                EdgeBuffer.Snapshot snapshot = buffer.snapshot();
+
+                for (int i = 1; i < snapshot.size(); i++) {
+                    long delta = snapshot.getTimestamp(i) - snapshot.getTimestamp(i - 1);
+
+                    assertTrue("edges out of order", delta > 0);
+
+                    if (delta == 1) {
+                        assertNotEquals("torn edge", snapshot.getState(i - 1), snapshot.getState(i));
+                    }
+                }
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+}
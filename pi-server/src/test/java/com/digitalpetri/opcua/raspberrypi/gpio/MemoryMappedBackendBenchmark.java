@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Output write cost of the "mmap" backend, and of the "pi4j" backend where wiringPi is available.
+ * <p>
+ * {@link MemoryMappedBackend} can't map {@code /dev/gpiomem} yet, so the "mmap" run maps a plain file standing in for
+ * the register block: it measures the backend's own overhead, not the cost of a write reaching the GPIO. The "pi4j"
+ * run toggles wiringPi pin {@code benchmark.pin} (0 unless set), so don't run it on a Pi with anything wired to that
+ * pin; elsewhere it's skipped. Not part of the default test run; run it with
+ * {@code mvn test -Dtest=MemoryMappedBackendBenchmark}.
+ */
+public class MemoryMappedBackendBenchmark {
+
+    private static final int PIN = Integer.getInteger("benchmark.pin", 0);
+
+    private static final int WRITES = 1_000_000;
+
+    /**
+     * wiringPi pins toggled together in the batched run.
+     */
+    private static final int[] BATCH_PINS = {0, 1, 2, 3, 4, 5, 6, 7};
+
+    @Test
+    public void mmap() throws Exception {
+        Path file = Files.createTempFile("gpiomem", ".bin");
+        Files.write(file, new byte[MemoryMappedBackend.BLOCK_SIZE]);
+
+        MemoryMappedBackend backend = new MemoryMappedBackend(file, 1000);
+
+        try {
+            GpioBackend.DigitalOutput output = backend.digitalOutput(PIN, "benchmark", false);
+
+            run(output, WRITES);
+            report("mmap (file)", run(output, WRITES), WRITES);
+
+            GpioBackend.DigitalOutput[] outputs = new GpioBackend.DigitalOutput[BATCH_PINS.length];
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = backend.digitalOutput(BATCH_PINS[i], "benchmark-" + i, false);
+            }
+
+            runBatched(backend, outputs, WRITES / outputs.length);
+            report("mmap, batches of " + outputs.length,
+                runBatched(backend, outputs, WRITES / outputs.length), WRITES);
+        } finally {
+            backend.shutdown();
+
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void pi4j() {
+        Pi4jBackend backend;
+
+        try {
+            backend = new Pi4jBackend();
+        } catch (Throwable t) {
+            // Not on a Pi: wiringPi's native library isn't there.
+            Assume.assumeNoException(t);
+            return;
+        }
+
+        try {
+            GpioBackend.DigitalOutput output = backend.digitalOutput(PIN, "benchmark", false);
+
+            run(output, WRITES / 10);
+            report("pi4j", run(output, WRITES / 10), WRITES / 10);
+        } finally {
+            backend.shutdown();
+        }
+    }
+
+    private static long run(GpioBackend.DigitalOutput output, int writes) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < writes; i++) {
+            output.setHigh((i & 1) == 0);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long runBatched(GpioBackend backend, GpioBackend.DigitalOutput[] outputs, int batches) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < batches; i++) {
+            boolean high = (i & 1) == 0;
+
+            backend.batch(() -> {
+                for (GpioBackend.DigitalOutput output : outputs) {
+                    output.setHigh(high);
+                }
+            });
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long nanos, int writes) {
+        System.out.printf("%s: %.1f ns/write%n", label, (double) nanos / writes);
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.BLOCK_SIZE;
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.GPCLR0;
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.GPFSEL0;
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.GPLEV0;
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.GPPUD;
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.GPPUDCLK0;
+import static com.digitalpetri.opcua.raspberrypi.gpio.MemoryMappedBackend.GPSET0;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link MemoryMappedBackend} against a plain file standing in for {@code /dev/gpiomem}, checking the registers
+ * it writes through a second mapping of the same file.
+ */
+public class MemoryMappedBackendTest {
+
+    /**
+     * wiringPi pins 0, 1, 2 and 3 are BCM GPIOs 17, 18, 27 and 22.
+     */
+    private static final int BCM_17 = 1 << 17;
+    private static final int BCM_18 = 1 << 18;
+    private static final int BCM_27 = 1 << 27;
+    private static final int BCM_22 = 1 << 22;
+
+    private Path file;
+    private MappedByteBuffer registers;
+    private MemoryMappedBackend backend;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("gpiomem", ".bin");
+        Files.write(file, new byte[BLOCK_SIZE]);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            registers = channel.map(FileChannel.MapMode.READ_WRITE, 0, BLOCK_SIZE);
+        }
+        registers.order(ByteOrder.LITTLE_ENDIAN);
+
+        backend = new MemoryMappedBackend(file, 1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        backend.shutdown();
+
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void outputIsLatchedThenSwitchedToOutput() {
+        // GPFSEL1 holds BCM 10-19; BCM 17 is bits 21-23.
+        registers.putInt(GPFSEL0 + 4, 7 << 21 | 5);
+
+        GpioBackend.DigitalOutput output = backend.digitalOutput(0, "out", true);
+
+        assertEquals(1 << 21 | 5, registers.getInt(GPFSEL0 + 4));
+        assertEquals(BCM_17, registers.getInt(GPSET0));
+        assertEquals(0, registers.getInt(GPCLR0));
+
+        output.setHigh(false);
+
+        assertEquals(BCM_17, registers.getInt(GPCLR0));
+    }
+
+    @Test
+    public void inputIsSwitchedToInputAndPullReleased() {
+        // BCM 18 is bits 24-26 of GPFSEL1.
+        registers.putInt(GPFSEL0 + 4, 7 << 24 | 1 << 21);
+
+        GpioBackend.DigitalInput input = backend.digitalInput(1, "in", GpioBackend.Pull.UP);
+
+        assertEquals(1 << 21, registers.getInt(GPFSEL0 + 4));
+        assertEquals(0, registers.getInt(GPPUD));
+        assertEquals(0, registers.getInt(GPPUDCLK0));
+
+        assertFalse(input.isHigh());
+        registers.putInt(GPLEV0, BCM_18);
+        assertTrue(input.isHigh());
+    }
+
+    @Test
+    public void batchedWritesAreOneSetAndOneClear() {
+        GpioBackend.DigitalOutput out17 = backend.digitalOutput(0, "out17", false);
+        GpioBackend.DigitalOutput out27 = backend.digitalOutput(2, "out27", false);
+        GpioBackend.DigitalOutput out22 = backend.digitalOutput(3, "out22", true);
+
+        registers.putInt(GPSET0, 0);
+        registers.putInt(GPCLR0, 0);
+
+        backend.batch(() -> {
+            out17.setHigh(true);
+            out27.setHigh(false);
+            out22.setHigh(false);
+            // The last write to a pin in a batch wins.
+            out27.setHigh(true);
+
+            assertEquals(0, registers.getInt(GPSET0));
+            assertEquals(0, registers.getInt(GPCLR0));
+        });
+
+        assertEquals(BCM_17 | BCM_27, registers.getInt(GPSET0));
+        assertEquals(BCM_22, registers.getInt(GPCLR0));
+    }
+
+    @Test
+    public void pollerReportsLevelChangesOfWatchedPins() throws InterruptedException {
+        BlockingQueue<Boolean> changes = new LinkedBlockingQueue<>();
+
+        backend.digitalInput(1, "in", GpioBackend.Pull.DOWN).addListener(changes::add);
+        backend.digitalInput(2, "unwatched", GpioBackend.Pull.DOWN);
+
+        registers.putInt(GPLEV0, BCM_18);
+        assertEquals(Boolean.TRUE, changes.poll(1, TimeUnit.SECONDS));
+
+        registers.putInt(GPLEV0, BCM_18 | BCM_27);
+        registers.putInt(GPLEV0, BCM_27);
+        assertEquals(Boolean.FALSE, changes.poll(1, TimeUnit.SECONDS));
+
+        // BCM 27 isn't watched, so toggling it alone reports nothing.
+        registers.putInt(GPLEV0, 0);
+        assertNull(changes.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void shortFileIsRefusedNotExtended() throws IOException {
+        Path empty = Files.createTempFile("gpiomem", ".bin");
+
+        try {
+            new MemoryMappedBackend(empty, 1000).shutdown();
+            fail("mapped a file shorter than the register block");
+        } catch (IOException expected) {
+            assertEquals(0, Files.size(empty));
+        } finally {
+            Files.delete(empty);
+        }
+    }
+
+}
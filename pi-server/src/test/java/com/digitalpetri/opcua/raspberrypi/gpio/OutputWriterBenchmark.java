@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.digitalpetri.opcua.raspberrypi.nodes.OutputNode;
+import com.google.common.collect.Lists;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Throughput of the {@link OutputWriter} pipeline, driving outputs on a {@link MemoryMappedBackend} that maps a plain
+ * file, so the cost measured is the pipeline's rather than the pins'.
+ * <p>
+ * Not part of the default test run; run it with {@code mvn test -Dtest=OutputWriterBenchmark}.
+ */
+public class OutputWriterBenchmark {
+
+    private static final int PINS = 8;
+    private static final int WRITES = 200_000;
+    private static final int WRITERS = 4;
+
+    private Path file;
+    private MemoryMappedBackend backend;
+    private BenchmarkOutput[] outputs;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("gpiomem", ".bin");
+        Files.write(file, new byte[MemoryMappedBackend.BLOCK_SIZE]);
+
+        backend = new MemoryMappedBackend(file, 1000);
+
+        outputs = new BenchmarkOutput[PINS];
+        for (int i = 0; i < PINS; i++) {
+            outputs[i] = new BenchmarkOutput(i, backend.digitalOutput(i, "benchmark-" + i, false));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        backend.shutdown();
+        Files.delete(file);
+    }
+
+    @Test
+    public void oneWriteAtATime() {
+        OutputWriter writer = new OutputWriter(0, backend);
+
+        try {
+            runSequential(writer, WRITES / 10);
+            report("one write at a time", runSequential(writer, WRITES / 10), WRITES / 10);
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void concurrentWriters() throws Exception {
+        for (long batchWindow : new long[]{0, 1}) {
+            OutputWriter writer = new OutputWriter(batchWindow, backend);
+
+            try {
+                runConcurrent(writer, WRITES);
+                report(WRITERS + " writers, " + batchWindow + "ms window", runConcurrent(writer, WRITES), WRITES);
+            } finally {
+                writer.shutdown();
+            }
+        }
+    }
+
+    private long runSequential(OutputWriter writer, int writes) {
+        resetApplied();
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < writes; i++) {
+            writer.write(outputs[i % PINS], new Variant((i & 1) == 0)).join();
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * {@link #WRITERS} threads each write their share of {@code writes} without waiting, round-robin over the pins,
+     * then wait for the last of them to be applied.
+     */
+    private long runConcurrent(OutputWriter writer, int writes) throws Exception {
+        resetApplied();
+
+        List<Thread> threads = Lists.newArrayList();
+        List<CompletableFuture<Void>> last = Lists.newCopyOnWriteArrayList();
+
+        long start = System.nanoTime();
+
+        for (int t = 0; t < WRITERS; t++) {
+            int offset = t;
+
+            Thread thread = new Thread(() -> {
+                CompletableFuture<Void> future = null;
+
+                for (int i = 0; i < writes / WRITERS; i++) {
+                    future = writer.write(outputs[(i + offset) % PINS], new Variant((i & 1) == 0));
+                }
+
+                last.add(future);
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        CompletableFuture.allOf(last.toArray(new CompletableFuture[last.size()])).join();
+
+        return System.nanoTime() - start;
+    }
+
+    private void resetApplied() {
+        for (BenchmarkOutput output : outputs) {
+            output.applied.reset();
+        }
+    }
+
+    private void report(String label, long nanos, int writes) {
+        long applied = 0;
+        for (BenchmarkOutput output : outputs) {
+            applied += output.applied.sum();
+        }
+
+        System.out.printf("%s: %.0f writes/s, %.1f us/write, %d of %d writes reached the pins%n",
+            label, writes * 1e9 / nanos, nanos / 1e3 / writes, applied, writes);
+    }
+
+    private static class BenchmarkOutput implements OutputNode {
+
+        final LongAdder applied = new LongAdder();
+
+        private final int pin;
+        private final GpioBackend.DigitalOutput output;
+
+        BenchmarkOutput(int pin, GpioBackend.DigitalOutput output) {
+            this.pin = pin;
+            this.output = output;
+        }
+
+        @Override
+        public int getPin() {
+            return pin;
+        }
+
+        @Override
+        public Variant convert(DataValue value) {
+            return value.getValue();
+        }
+
+        @Override
+        public void apply(Variant value) {
+            output.setHigh((boolean) value.getValue());
+            applied.increment();
+        }
+
+        @Override
+        public void refresh(double maxAge) {}
+
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BC1;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BS1;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MODE_INPUT;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MODE_OUTPUT;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.WRITE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link RemoteBackend} against a {@link RemoteGpioDaemon} on a free local port.
+ */
+public class RemoteBackendTest {
+
+    private static final long POLL_INTERVAL_MICROS = 1000;
+    private static final long TIMEOUT_MILLIS = 500;
+
+    /**
+     * wiringPi pins 0, 1, 2 and 3 are BCM GPIOs 17, 18, 27 and 22.
+     */
+    private static final int BCM_17 = 17;
+    private static final int BCM_18 = 18;
+    private static final int BCM_27 = 27;
+    private static final int BCM_22 = 22;
+
+    private RemoteGpioDaemon daemon;
+    private RemoteBackend backend;
+
+    @Before
+    public void setUp() throws IOException {
+        daemon = new RemoteGpioDaemon(0).start();
+        backend = new RemoteBackend("localhost", daemon.getPort(), POLL_INTERVAL_MICROS, TIMEOUT_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        backend.shutdown();
+        daemon.close();
+    }
+
+    @Test
+    public void provisioningConfiguresPins() {
+        GpioBackend.DigitalOutput output = backend.digitalOutput(0, "out", true);
+        backend.digitalInput(1, "in", GpioBackend.Pull.UP);
+
+        // Commands are answered in order, so the pins are configured once this returns.
+        assertTrue(output.isHigh());
+
+        assertEquals(MODE_OUTPUT, daemon.getMode(BCM_17));
+        assertEquals(MODE_INPUT, daemon.getMode(BCM_18));
+        assertTrue(daemon.isHigh(BCM_18));
+    }
+
+    @Test
+    public void batchedWritesAreOneSetAndOneClear() {
+        GpioBackend.DigitalOutput out17 = backend.digitalOutput(0, "out17", false);
+        GpioBackend.DigitalOutput out27 = backend.digitalOutput(2, "out27", false);
+        GpioBackend.DigitalOutput out22 = backend.digitalOutput(3, "out22", true);
+
+        assertTrue(out22.isHigh());
+
+        int writes = daemon.getCommandCount(WRITE);
+
+        backend.batch(() -> {
+            out17.setHigh(true);
+            out27.setHigh(false);
+            out22.setHigh(false);
+            // The last write to a pin in a batch wins.
+            out27.setHigh(true);
+        });
+
+        assertEquals(1, daemon.getCommandCount(BS1));
+        assertEquals(1, daemon.getCommandCount(BC1));
+        assertEquals(writes, daemon.getCommandCount(WRITE));
+
+        assertTrue(daemon.isHigh(BCM_17));
+        assertTrue(daemon.isHigh(BCM_27));
+        assertFalse(daemon.isHigh(BCM_22));
+    }
+
+    @Test
+    public void pollReportsInputChanges() throws InterruptedException {
+        BlockingQueue<Boolean> changes = new LinkedBlockingQueue<>();
+
+        backend.digitalInput(1, "in", GpioBackend.Pull.DOWN).addListener(changes::add);
+
+        // The first poll reports the level the input started at.
+        assertEquals(Boolean.FALSE, changes.poll(1, TimeUnit.SECONDS));
+
+        daemon.setInput(BCM_18, true);
+        assertEquals(Boolean.TRUE, changes.poll(1, TimeUnit.SECONDS));
+
+        daemon.setInput(BCM_18, false);
+        assertEquals(Boolean.FALSE, changes.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void pinsAreProvisionedBeforeTheDaemonIsReachable() throws IOException {
+        int port = daemon.getPort();
+        daemon.close();
+
+        long start = System.nanoTime();
+
+        GpioBackend.DigitalOutput output = backend.digitalOutput(0, "out", true);
+        backend.digitalInput(1, "in", GpioBackend.Pull.UP);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS));
+
+        try {
+            output.isHigh();
+            fail("read from an unreachable daemon");
+        } catch (UncheckedIOException expected) {
+            // not connected
+        }
+
+        daemon = restart(port);
+
+        eventually(() -> readsHigh(output));
+
+        assertEquals(MODE_OUTPUT, daemon.getMode(BCM_17));
+        assertEquals(MODE_INPUT, daemon.getMode(BCM_18));
+    }
+
+    @Test
+    public void lostConnectionIsReestablishedAndPinsConfiguredAgain() throws Exception {
+        BlockingQueue<Boolean> changes = new LinkedBlockingQueue<>();
+
+        GpioBackend.DigitalOutput output = backend.digitalOutput(0, "out", false);
+        backend.digitalInput(1, "in", GpioBackend.Pull.DOWN).addListener(changes::add);
+
+        assertEquals(Boolean.FALSE, changes.poll(1, TimeUnit.SECONDS));
+        output.setHigh(true);
+
+        // A restarted daemon has forgotten every pin.
+        int port = daemon.getPort();
+        daemon.close();
+        daemon = restart(port);
+
+        // The first poll on the new connection reports the input again, once it's been configured.
+        assertEquals(Boolean.FALSE, changes.poll(5, TimeUnit.SECONDS));
+
+        // The output is driven as last written.
+        assertTrue(daemon.isHigh(BCM_17));
+        assertEquals(MODE_OUTPUT, daemon.getMode(BCM_17));
+        assertEquals(MODE_INPUT, daemon.getMode(BCM_18));
+
+        daemon.setInput(BCM_18, true);
+        assertEquals(Boolean.TRUE, changes.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void unansweredCommandClosesTheConnection() throws InterruptedException {
+        GpioBackend.DigitalOutput output = backend.digitalOutput(0, "out", true);
+
+        assertTrue(output.isHigh());
+        assertEquals(1, daemon.getConnectionCount());
+
+        daemon.setStalled(true);
+
+        try {
+            output.isHigh();
+            fail("read from a stalled daemon");
+        } catch (UncheckedIOException expected) {
+            // timed out
+        }
+
+        daemon.setStalled(false);
+
+        eventually(() -> readsHigh(output));
+
+        assertEquals(2, daemon.getConnectionCount());
+    }
+
+    /**
+     * Start a new daemon on {@code port}, waiting for the last one's connections to close.
+     */
+    private static RemoteGpioDaemon restart(int port) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (true) {
+            try {
+                return new RemoteGpioDaemon(port).start();
+            } catch (BindException e) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean readsHigh(GpioBackend.DigitalOutput output) {
+        try {
+            return output.isHigh();
+        } catch (UncheckedIOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Wait up to 5 seconds for {@code condition} to hold.
+     */
+    private static void eventually(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("condition not met within 5s");
+            }
+
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2014
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.digitalpetri.opcua.raspberrypi.gpio;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BC1;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BC2;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BR1;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BR2;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BS1;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.BS2;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.COMMAND_SIZE;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.GDC;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MAX_DUTY_CYCLE;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MODEG;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MODES;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MODE_INPUT;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.MODE_OUTPUT;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.PUD;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.PUD_OFF;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.PUD_UP;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.PWM;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.READ;
+import static com.digitalpetri.opcua.raspberrypi.gpio.RemoteBackend.WRITE;
+
+/**
+ * A stand-in for the pigpio daemon: serves the commands {@link RemoteBackend} uses against simulated pins, so the
+ * backend can be tested without a Pi.
+ * <p>
+ * Commands are answered in order, and responses are flushed once no more commands are waiting, so pipelined
+ * requests are answered in one write. Inputs float at their pull level unless driven by
+ * {@link #setInput(int, boolean)}. {@link #disconnect()} and {@link #setStalled(boolean)} simulate a lost connection
+ * and a daemon that stops answering.
+ */
+public class RemoteGpioDaemon implements AutoCloseable {
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : RemoteBackend.DEFAULT_PORT;
+
+        new RemoteGpioDaemon(port).serve();
+    }
+
+    /**
+     * Error results.
+     */
+    static final int BAD_GPIO = -3;
+    static final int BAD_MODE = -4;
+    static final int BAD_LEVEL = -5;
+    static final int BAD_PUD = -6;
+    static final int BAD_DUTY_CYCLE = -8;
+    static final int UNKNOWN_COMMAND = -88;
+    static final int NOT_PWM_GPIO = -92;
+
+    private static final int MAX_MODE = 7;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Simulated pin state, indexed by BCM GPIO number. Guarded by {@code this}.
+     */
+    private final int[] levels = new int[2];
+    private final int[] modes = new int[BcmPins.COUNT];
+    private final int[] dutyCycles = new int[BcmPins.COUNT];
+    private final int[] commandCounts = new int[256];
+
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connectionCount = new AtomicInteger(0);
+
+    private volatile boolean stalled = false;
+
+    private final ServerSocket serverSocket;
+
+    /**
+     * @param port the port to listen on; 0 for any free port.
+     */
+    public RemoteGpioDaemon(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        // A restarted daemon binds the port again while the last one's connections linger in TIME_WAIT.
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+
+        Arrays.fill(dutyCycles, -1);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accept connections on a daemon thread.
+     */
+    public RemoteGpioDaemon start() {
+        Thread thread = new Thread(this::serve, "remote-gpio-daemon");
+        thread.setDaemon(true);
+        thread.start();
+
+        return this;
+    }
+
+    /**
+     * Accept connections on the current thread until the daemon is closed.
+     */
+    public void serve() {
+        logger.info("Serving GPIO commands on port {}.", getPort());
+
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+
+                // An accept in progress can still complete after close() returns.
+                if (serverSocket.isClosed()) {
+                    socket.close();
+                    break;
+                }
+
+                socket.setTcpNoDelay(true);
+
+                sockets.add(socket);
+                connectionCount.incrementAndGet();
+
+                Thread thread = new Thread(() -> handle(socket), "remote-gpio-daemon-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.error("Error accepting connection.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drive an input from outside, as the circuit it's wired to would.
+     *
+     * @param bcm  the BCM GPIO number.
+     * @param high the level to drive it to.
+     */
+    public synchronized void setInput(int bcm, boolean high) {
+        setLevel(bcm, high);
+    }
+
+    /**
+     * @param bcm the BCM GPIO number.
+     * @return the pin's current level.
+     */
+    public synchronized boolean isHigh(int bcm) {
+        return (levels[bcm >>> 5] & (1 << (bcm & 31))) != 0;
+    }
+
+    /**
+     * @param bcm the BCM GPIO number.
+     * @return the pin's mode, e.g. {@link RemoteBackend#MODE_OUTPUT}.
+     */
+    public synchronized int getMode(int bcm) {
+        return modes[bcm];
+    }
+
+    /**
+     * @param cmd a command code.
+     * @return the number of {@code cmd} commands executed so far.
+     */
+    public synchronized int getCommandCount(int cmd) {
+        return commandCounts[cmd];
+    }
+
+    /**
+     * @return the number of connections accepted so far.
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Close every open connection, as a network failure would.
+     */
+    public void disconnect() {
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Closing anyway.
+            }
+        }
+    }
+
+    /**
+     * @param stalled {@code true} to stop answering commands, {@code false} to answer them again.
+     */
+    public void setStalled(boolean stalled) {
+        this.stalled = stalled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+
+        disconnect();
+    }
+
+    private void handle(Socket socket) {
+        byte[] request = new byte[COMMAND_SIZE];
+        ByteBuffer requestBuffer = ByteBuffer.wrap(request).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer response = ByteBuffer.allocate(COMMAND_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            DataInputStream input = new DataInputStream(in);
+            OutputStream output = new BufferedOutputStream(s.getOutputStream());
+
+            while (true) {
+                input.readFully(request);
+
+                while (stalled && !s.isClosed()) {
+                    Thread.sleep(1);
+                }
+
+                int cmd = requestBuffer.getInt(0);
+                int p1 = requestBuffer.getInt(4);
+                int p2 = requestBuffer.getInt(8);
+
+                response.clear();
+                response.putInt(cmd).putInt(p1).putInt(p2).putInt(execute(cmd, p1, p2));
+                output.write(response.array());
+
+                if (in.available() < COMMAND_SIZE) {
+                    output.flush();
+                }
+            }
+        } catch (EOFException e) {
+            logger.debug("Connection from {} closed.", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            logger.debug("Connection from {} failed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    synchronized int execute(int cmd, int p1, int p2) {
+        if (cmd >= 0 && cmd < commandCounts.length) {
+            commandCounts[cmd]++;
+        }
+
+        switch (cmd) {
+            case BR1:
+                return levels[0];
+            case BR2:
+                return levels[1];
+            case BC1:
+                levels[0] &= ~(p1 & outputs(0));
+                return 0;
+            case BC2:
+                levels[1] &= ~(p1 & outputs(1));
+                return 0;
+            case BS1:
+                levels[0] |= p1 & outputs(0);
+                return 0;
+            case BS2:
+                levels[1] |= p1 & outputs(1);
+                return 0;
+        }
+
+        if (p1 < 0 || p1 >= BcmPins.COUNT) {
+            return BAD_GPIO;
+        }
+
+        switch (cmd) {
+            case MODES:
+                if (p2 < 0 || p2 > MAX_MODE) {
+                    return BAD_MODE;
+                }
+                modes[p1] = p2;
+                return 0;
+
+            case MODEG:
+                return modes[p1];
+
+            case PUD:
+                if (p2 < PUD_OFF || p2 > PUD_UP) {
+                    return BAD_PUD;
+                }
+                if (modes[p1] == MODE_INPUT && p2 != PUD_OFF) {
+                    setLevel(p1, p2 == PUD_UP);
+                }
+                return 0;
+
+            case READ:
+                return isHigh(p1) ? 1 : 0;
+
+            case WRITE:
+                if (p2 != 0 && p2 != 1) {
+                    return BAD_LEVEL;
+                }
+                modes[p1] = MODE_OUTPUT;
+                dutyCycles[p1] = -1;
+                setLevel(p1, p2 == 1);
+                return 0;
+
+            case PWM:
+                if (p2 < 0 || p2 > MAX_DUTY_CYCLE) {
+                    return BAD_DUTY_CYCLE;
+                }
+                modes[p1] = MODE_OUTPUT;
+                dutyCycles[p1] = p2;
+                setLevel(p1, p2 > 0);
+                return 0;
+
+            case GDC:
+                return dutyCycles[p1] >= 0 ? dutyCycles[p1] : NOT_PWM_GPIO;
+
+            default:
+                return UNKNOWN_COMMAND;
+        }
+    }
+
+    private int outputs(int bank) {
+        int mask = 0;
+
+        for (int bit = 0; bit < 32 && (bank << 5) + bit < BcmPins.COUNT; bit++) {
+            if (modes[(bank << 5) + bit] == MODE_OUTPUT) {
+                mask |= 1 << bit;
+            }
+        }
+
+        return mask;
+    }
+
+    private void setLevel(int bcm, boolean high) {
+        int bit = 1 << (bcm & 31);
+
+        if (high) {
+            levels[bcm >>> 5] |= bit;
+        } else {
+            levels[bcm >>> 5] &= ~bit;
+        }
+    }
+
+}
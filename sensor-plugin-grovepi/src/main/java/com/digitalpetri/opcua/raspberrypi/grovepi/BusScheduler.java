@@ -0,0 +1,198 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a bus's transactions one at a time, alternating between reads and writes whenever both are waiting, so a
+ * burst of writes can't starve sampling and a busy poll schedule can't starve writes.
+ * <p>
+ * A transaction still running after {@code timeout} milliseconds is abandoned: its timeout callback is run, its I/O
+ * thread is interrupted and retired, and the remaining transactions carry on on a new I/O thread, so one hung
+ * transaction can't stall every sensor on the board.
+ */
+class BusScheduler {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Queue<Transaction> reads = new ConcurrentLinkedQueue<>();
+    private final Queue<Transaction> writes = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * Only touched by the pass in progress.
+     */
+    private boolean lastWasWrite = false;
+
+    /**
+     * The transaction running on the current I/O thread, and when it started; guarded by {@code this}.
+     */
+    private Transaction running;
+    private long runningSince;
+
+    private volatile ExecutorService ioExecutor;
+
+    private final Supplier<ExecutorService> ioExecutorFactory;
+    private final long timeoutNanos;
+
+    /**
+     * @param ioExecutorFactory creates the single-threaded executor transactions run on; called again whenever a hung
+     *                          I/O thread is retired.
+     * @param watchdogExecutor  the executor transactions are checked for timeouts on.
+     * @param timeout           the time, in milliseconds, a transaction may run before it's abandoned, or 0 to wait
+     *                          forever.
+     */
+    BusScheduler(Supplier<ExecutorService> ioExecutorFactory, ScheduledExecutorService watchdogExecutor, long timeout) {
+        this.ioExecutorFactory = ioExecutorFactory;
+        this.ioExecutor = ioExecutorFactory.get();
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        if (timeout > 0) {
+            long period = Math.max(1, timeout / 4);
+
+            watchdogExecutor.scheduleWithFixedDelay(this::checkTimeout, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @param transaction the read to run.
+     * @param timedOut    run, on the watchdog thread, if {@code transaction} is abandoned.
+     */
+    void read(Runnable transaction, Runnable timedOut) {
+        reads.add(new Transaction(transaction, timedOut));
+        schedule();
+    }
+
+    /**
+     * @param transaction the write to run.
+     * @param timedOut    run, on the watchdog thread, if {@code transaction} is abandoned.
+     */
+    void write(Runnable transaction, Runnable timedOut) {
+        writes.add(new Transaction(transaction, timedOut));
+        schedule();
+    }
+
+    /**
+     * Interrupt the transaction running, if any, and stop running transactions. The watchdog executor isn't ours to
+     * shut down.
+     */
+    void shutdown() {
+        ExecutorService executor;
+
+        synchronized (this) {
+            executor = ioExecutor;
+            running = null;
+        }
+
+        executor.shutdownNow();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            ExecutorService executor = ioExecutor;
+
+            executor.execute(() -> runNext(executor));
+        }
+    }
+
+    /**
+     * Run the next transaction, then schedule another pass if any are waiting. At most one pass is scheduled at a
+     * time, so transactions never run concurrently unless a hung one has been abandoned.
+     */
+    private void runNext(ExecutorService executor) {
+        Transaction next;
+
+        if (lastWasWrite) {
+            next = reads.poll();
+            lastWasWrite = next == null;
+
+            if (next == null) {
+                next = writes.poll();
+            }
+        } else {
+            next = writes.poll();
+            lastWasWrite = next != null;
+
+            if (next == null) {
+                next = reads.poll();
+            }
+        }
+
+        if (next != null) {
+            synchronized (this) {
+                running = next;
+                runningSince = System.nanoTime();
+            }
+
+            next.transaction.run();
+
+            synchronized (this) {
+                if (executor != ioExecutor) {
+                    // Abandoned while running; the new I/O thread has taken over.
+                    return;
+                }
+
+                running = null;
+            }
+        }
+
+        scheduled.set(false);
+
+        if (!reads.isEmpty() || !writes.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void checkTimeout() {
+        Transaction abandoned;
+        ExecutorService retired;
+
+        synchronized (this) {
+            if (running == null || System.nanoTime() - runningSince < timeoutNanos) {
+                return;
+            }
+
+            abandoned = running;
+            retired = ioExecutor;
+
+            running = null;
+            ioExecutor = ioExecutorFactory.get();
+        }
+
+        logger.warn("Bus transaction still running after {}ms; abandoning it and replacing the I/O thread.",
+            TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+
+        retired.shutdownNow();
+
+        try {
+            abandoned.timedOut.run();
+        } catch (Throwable t) {
+            logger.error("Error failing abandoned bus transaction.", t);
+        }
+
+        scheduled.set(false);
+        schedule();
+    }
+
+    private static class Transaction {
+
+        final Runnable transaction;
+        final Runnable timedOut;
+
+        Transaction(Runnable transaction, Runnable timedOut) {
+            this.transaction = transaction;
+            this.timedOut = timedOut;
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+/**
+ * Stops a failing device from being read on every poll.
+ * <p>
+ * After {@code failureThreshold} consecutive failures the breaker opens and rejects reads for a backoff period. Once
+ * it expires a single probe read is let through (half-open): if it succeeds the breaker closes again, otherwise it
+ * re-opens with the backoff doubled, up to {@code maxBackoff}.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long minBackoff;
+    private final long maxBackoff;
+
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long backoff;
+    private long openUntil;
+
+    /**
+     * @param failureThreshold the number of consecutive failures that opens the breaker.
+     * @param minBackoff       the time, in milliseconds, the breaker stays open the first time it opens.
+     * @param maxBackoff       the longest time, in milliseconds, the breaker stays open.
+     */
+    public CircuitBreaker(int failureThreshold, long minBackoff, long maxBackoff) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.minBackoff = Math.max(1, minBackoff);
+        this.maxBackoff = Math.max(this.minBackoff, maxBackoff);
+
+        backoff = this.minBackoff;
+    }
+
+    /**
+     * @return {@code true} if a read may be attempted now. An open breaker whose backoff has expired lets exactly
+     * one probe through and becomes half-open.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+
+            case OPEN:
+                if (System.nanoTime() - openUntil >= 0) {
+                    state = State.HALF_OPEN;
+                    return true;
+                } else {
+                    return false;
+                }
+
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Record a successful read and close the breaker.
+     *
+     * @return {@code true} if any failure had been recorded since the last success.
+     */
+    public synchronized boolean onSuccess() {
+        boolean recovered = failures > 0;
+
+        state = State.CLOSED;
+        failures = 0;
+        backoff = minBackoff;
+
+        return recovered;
+    }
+
+    /**
+     * Record a failed read.
+     *
+     * @return the state of the breaker after the failure.
+     */
+    public synchronized State onFailure() {
+        failures++;
+
+        if (state == State.HALF_OPEN) {
+            backoff = Math.min(backoff * 2, maxBackoff);
+            open();
+        } else if (state == State.CLOSED && failures >= failureThreshold) {
+            backoff = minBackoff;
+            open();
+        }
+
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + backoff * 1_000_000L;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of consecutive failures recorded.
+     */
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the time, in milliseconds, the breaker stays open the next time it opens or has currently opened for.
+     */
+    public synchronized long getBackoff() {
+        return backoff;
+    }
+
+}
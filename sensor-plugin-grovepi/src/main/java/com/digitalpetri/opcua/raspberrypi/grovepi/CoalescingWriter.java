@@ -0,0 +1,130 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.digitalpetri.opcua.raspberrypi.grovepi.bus.GroveBus;
+import com.google.common.collect.Lists;
+
+/**
+ * Queues writes to one device, coalescing them: a write made while an earlier one is still waiting for the bus
+ * replaces its value, and both complete when the latest value has been written.
+ *
+ * @param <T> the type of value written.
+ */
+public class CoalescingWriter<T> {
+
+    @FunctionalInterface
+    public interface WriteOperation<T> {
+        void write(GroveBus bus, T value) throws Exception;
+    }
+
+    private T pending;
+    private List<CompletableFuture<Void>> waiting = Lists.newArrayList();
+    private boolean queued = false;
+
+    private final GrovePiContext grovePiContext;
+    private final WriteOperation<T> operation;
+
+    public CoalescingWriter(GrovePiContext grovePiContext, WriteOperation<T> operation) {
+        this.grovePiContext = grovePiContext;
+        this.operation = operation;
+    }
+
+    /**
+     * Write {@code value} to the device.
+     *
+     * @param value the value to write.
+     * @return a future that completes when {@code value}, or a value written after it, has been written.
+     */
+    public CompletableFuture<Void> write(T value) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        boolean submit;
+
+        synchronized (this) {
+            pending = value;
+            waiting.add(future);
+
+            submit = !queued;
+            queued = true;
+        }
+
+        if (submit) {
+            Batch<T> batch = new Batch<>();
+
+            grovePiContext.submitWrite(bus -> writePending(bus, batch)).whenComplete((b, ex) -> {
+                if (ex != null) {
+                    fail(batch, ex);
+                } else {
+                    batch.complete();
+                }
+            });
+        }
+
+        return future;
+    }
+
+    private Batch<T> writePending(GroveBus bus, Batch<T> batch) {
+        synchronized (this) {
+            take(batch);
+        }
+
+        try {
+            operation.write(bus, batch.value);
+        } catch (Throwable t) {
+            batch.failure = t;
+        }
+
+        return batch;
+    }
+
+    /**
+     * Fail {@code batch}'s waiters when the bus transaction itself failed, e.g. because it hung and was abandoned, or
+     * was never run. If it never got as far as taking the pending value, the writes waiting for it are failed instead.
+     */
+    private void fail(Batch<T> batch, Throwable failure) {
+        synchronized (this) {
+            if (batch.waiting == null) {
+                take(batch);
+            }
+        }
+
+        batch.failure = failure;
+        batch.complete();
+    }
+
+    /**
+     * Move the pending value and its waiters into {@code batch}. Must be called holding {@code this}.
+     */
+    private void take(Batch<T> batch) {
+        batch.value = pending;
+        batch.waiting = waiting;
+
+        pending = null;
+        waiting = Lists.newArrayList();
+        queued = false;
+    }
+
+    /**
+     * The value one bus transaction writes and the futures waiting for it. Filled in by whichever of the transaction
+     * and its failure handler gets to it first.
+     */
+    private static class Batch<T> {
+
+        T value;
+        List<CompletableFuture<Void>> waiting;
+
+        Throwable failure;
+
+        void complete() {
+            if (failure == null) {
+                waiting.forEach(f -> f.complete(null));
+            } else {
+                waiting.forEach(f -> f.completeExceptionally(failure));
+            }
+        }
+
+    }
+
+}
@@ -1,39 +1,250 @@
 package com.digitalpetri.opcua.raspberrypi.grovepi;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import com.digitalpetri.grovepi.GrovePi;
+import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
+import com.digitalpetri.opcua.raspberrypi.grovepi.bus.GroveBus;
+import com.digitalpetri.opcua.raspberrypi.grovepi.bus.GrovePi4jBus;
+import com.digitalpetri.opcua.raspberrypi.grovepi.bus.SimulatedGroveBus;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
 
 public class GrovePiContext {
 
-    private static GrovePiContext INSTANCE = null;
+    /**
+     * The I2C address a GrovePi board answers on unless its firmware has been changed.
+     */
+    public static final int DEFAULT_ADDRESS = 0x04;
 
-    public static synchronized GrovePiContext get() throws Exception {
-        if (INSTANCE == null) {
-            GrovePi grovePi = new GrovePi();
+    private static final ConcurrentMap<String, GrovePiContext> CONTEXTS = new ConcurrentHashMap<>();
 
-            INSTANCE = new GrovePiContext(grovePi);
+    /**
+     * Get the context for the board at {@code sensor.grove.address} on the backend selected by
+     * {@code sensor.grove.backend}, creating it if necessary.
+     * <p>
+     * "grovepi", the default, talks to a GrovePi board. "simulated" runs against a {@link SimulatedGroveBus}.
+     * <p>
+     * Boards are configured by the {@code grovepi} block of the application config, not by the sensors on them, so
+     * a board is set up the same way whichever sensor gets to it first. See this plugin's {@code reference.conf}.
+     * <p>
+     * Every board has its own I/O thread, so boards are sampled in parallel.
+     *
+     * @param sensorContext the {@link SensorContext} of the sensor.
+     * @return the {@link GrovePiContext} for the configured board.
+     */
+    public static GrovePiContext get(SensorContext sensorContext) throws Exception {
+        Config config = sensorContext.getConfig();
+
+        String backend = config.hasPath("sensor.grove.backend") ?
+            config.getString("sensor.grove.backend") : GrovePi4jBus.BACKEND;
+
+        int address = config.hasPath("sensor.grove.address") ?
+            config.getInt("sensor.grove.address") : DEFAULT_ADDRESS;
+
+        Config application = ConfigFactory.load(GrovePiContext.class.getClassLoader());
+
+        return get(backend, address, application, sensorContext.getServer().getExecutorService());
+    }
+
+    /**
+     * @param backend          the bus backend the board is on.
+     * @param address          the I2C address of the board.
+     * @param config           the application config, holding the {@code grovepi} block.
+     * @param callbackExecutor the executor transaction futures are completed on.
+     * @return the {@link GrovePiContext} for the board, created if necessary.
+     */
+    static GrovePiContext get(String backend, int address, Config config, Executor callbackExecutor)
+        throws Exception {
+
+        String key = key(backend, address);
+
+        GrovePiContext context = CONTEXTS.get(key);
+
+        if (context != null) {
+            return context;
+        }
+
+        try {
+            // Only the board being created is locked; lookups of every other board carry on.
+            return CONTEXTS.computeIfAbsent(key, k -> {
+                try {
+                    Config board = boardConfig(config, address);
+
+                    return new GrovePiContext(k, createBus(backend, address, board),
+                        board.getDuration("transaction-timeout", TimeUnit.MILLISECONDS), callbackExecutor);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Forget the context for the board at {@code address} on {@code backend}, if there is one, and stop its threads.
+     * Sensors still holding it can no longer use it; the next {@link #get} creates a new one.
+     *
+     * @param backend the bus backend the board is on.
+     * @param address the I2C address of the board.
+     */
+    static void remove(String backend, int address) {
+        GrovePiContext context = CONTEXTS.remove(key(backend, address));
+
+        if (context != null) {
+            context.shutdown();
         }
+    }
 
-        return INSTANCE;
+    private static String key(String backend, int address) {
+        return String.format("%s-0x%02x", backend, address);
     }
 
-    private final ScheduledExecutorService executor =
-        Executors.newSingleThreadScheduledExecutor();
+    /**
+     * @return the {@code grovepi} block, overridden by {@code grovepi.boards."0xNN"} for the board at
+     * {@code address} if present.
+     */
+    private static Config boardConfig(Config config, int address) {
+        Config grovepi = config.getConfig("grovepi");
 
-    private final GrovePi grovePi;
+        String boardPath = String.format("boards.\"0x%02x\"", address);
 
-    private GrovePiContext(GrovePi grovePi) {
-        this.grovePi = grovePi;
+        return grovepi.hasPath(boardPath) ? grovepi.getConfig(boardPath).withFallback(grovepi) : grovepi;
     }
 
-    public GrovePi getGrovePi() {
-        return grovePi;
+    private static GroveBus createBus(String backend, int address, Config board) throws Exception {
+        switch (backend) {
+            case GrovePi4jBus.BACKEND:
+                return new GrovePi4jBus(address);
+
+            case SimulatedGroveBus.BACKEND:
+                return new SimulatedGroveBus(
+                    board.getDuration("simulation.latency", TimeUnit.MICROSECONDS),
+                    board.getDuration("simulation.jitter", TimeUnit.MICROSECONDS),
+                    board.getDuration("simulation.period", TimeUnit.MILLISECONDS),
+                    board.getDouble("simulation.noise"),
+                    board.getDouble("simulation.failure-rate")
+                );
+        }
+
+        throw new Exception("unknown sensor.grove.backend value: " + backend);
+    }
+
+    /**
+     * Runs bus transactions, one at a time, interleaving reads and writes.
+     */
+    private final BusScheduler busScheduler;
+
+    /**
+     * Runs poll ticks and timeouts; never blocks on the bus.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Completes transaction futures, so node updates chained onto them run off the I/O thread.
+     */
+    private final Executor callbackExecutor;
+
+    private final PollScheduler scheduler;
+
+    private final GroveBus bus;
+
+    private GrovePiContext(String name, GroveBus bus, long transactionTimeout, Executor callbackExecutor) {
+        this.bus = bus;
+        this.callbackExecutor = callbackExecutor;
+
+        executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("grovepi-scheduler-" + name)
+                .setDaemon(true)
+                .build()
+        );
+
+        ThreadFactory ioThreadFactory = new ThreadFactoryBuilder()
+            .setNameFormat("grovepi-io-" + name + "-%d")
+            .setDaemon(true)
+            .build();
+
+        busScheduler = new BusScheduler(
+            () -> Executors.newSingleThreadExecutor(ioThreadFactory), executor, transactionTimeout);
+
+        scheduler = new PollScheduler(executor);
+    }
+
+    /**
+     * Run the read {@code transaction} on the bus's I/O thread.
+     * <p>
+     * The returned future is completed on the server's executor; the I/O thread only runs bus transactions.
+     *
+     * @param transaction the {@link GroveBus.Transaction} to run.
+     * @return a future completing with the result of {@code transaction}.
+     */
+    public <T> CompletableFuture<T> submit(GroveBus.Transaction<T> transaction) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        busScheduler.read(() -> execute(transaction, future), () -> timedOut(future));
+
+        return future;
+    }
+
+    /**
+     * Run the write {@code transaction} on the bus's I/O thread, taking turns with reads.
+     *
+     * @param transaction the {@link GroveBus.Transaction} to run.
+     * @return a future completing with the result of {@code transaction}.
+     * @see CoalescingWriter
+     */
+    public <T> CompletableFuture<T> submitWrite(GroveBus.Transaction<T> transaction) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        busScheduler.write(() -> execute(transaction, future), () -> timedOut(future));
+
+        return future;
+    }
+
+    private <T> void execute(GroveBus.Transaction<T> transaction, CompletableFuture<T> future) {
+        try {
+            T result = transaction.execute(bus);
+
+            callbackExecutor.execute(() -> future.complete(result));
+        } catch (Throwable t) {
+            callbackExecutor.execute(() -> future.completeExceptionally(t));
+        }
+    }
+
+    private void shutdown() {
+        executor.shutdownNow();
+        busScheduler.shutdown();
+    }
+
+    private void timedOut(CompletableFuture<?> future) {
+        callbackExecutor.execute(() -> future.completeExceptionally(
+            new TimeoutException("bus transaction abandoned after grovepi.transaction-timeout")));
+    }
+
+    public GroveBus getBus() {
+        return bus;
     }
 
     public ScheduledExecutorService getExecutor() {
         return executor;
     }
 
+    /**
+     * @return the {@link PollScheduler} all sensors on this GrovePi are polled by.
+     */
+    public PollScheduler getScheduler() {
+        return scheduler;
+    }
+
 }
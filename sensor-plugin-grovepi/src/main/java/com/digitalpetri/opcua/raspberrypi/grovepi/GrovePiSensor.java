@@ -1,10 +1,23 @@
 package com.digitalpetri.opcua.raspberrypi.grovepi;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 
 import com.digitalpetri.opcua.raspberrypi.api.Sensor;
 import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
+import com.digitalpetri.opcua.raspberrypi.grovepi.filter.SampleFilter;
+import com.digitalpetri.opcua.raspberrypi.util.Deadband;
+import com.google.common.collect.Sets;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigUtil;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
 import org.eclipse.milo.opcua.sdk.server.api.AccessContext;
@@ -13,26 +26,92 @@ import org.eclipse.milo.opcua.sdk.server.api.MonitoredItem;
 import org.eclipse.milo.opcua.sdk.server.nodes.AttributeContext;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.StatusCodes;
 import org.eclipse.milo.opcua.stack.core.UaException;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
 import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
 import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.stream.Collectors.toList;
+import static org.eclipse.milo.opcua.stack.core.util.FutureUtils.sequence;
 
 public abstract class GrovePiSensor implements Sensor {
 
+    /**
+     * Default rate, in milliseconds, a sensor is polled at while nothing is monitoring it.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_RATE = 30_000;
+
+    /**
+     * Default time, in milliseconds, a device read may take before it's failed.
+     */
+    public static final long DEFAULT_SAMPLE_TIMEOUT = 5_000;
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_MIN_BACKOFF = 1_000;
+    public static final long DEFAULT_MAX_BACKOFF = 60_000;
+
+    public static final int DEFAULT_FILTER_WINDOW = 10;
+    public static final double DEFAULT_FILTER_ALPHA = 0.2;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * The device read currently in flight, if any. Concurrent samples join it instead of starting their own.
+     */
+    private final AtomicReference<CompletableFuture<Void>> inFlight = new AtomicReference<>();
+
+    private volatile long lastSampleNanos;
+    private volatile boolean sampled = false;
+
+    /**
+     * Successful device reads so far, and how many of them had been read when values were last published.
+     */
+    private final AtomicLong sampleCount = new AtomicLong(0);
+    private long publishedCount = 0;
+    private final Object publishLock = new Object();
+
+    private final CircuitBreaker circuitBreaker;
+    private final long sampleTimeout;
+
+    /**
+     * Items currently monitoring this sensor's nodes; polling runs at the fastest rate any of them asks for.
+     */
+    private final Set<DataItem> dataItems = Sets.newConcurrentHashSet();
+
+    private PollScheduler.Registration pollRegistration;
+    private PollScheduler.Registration sampleRegistration;
+    private volatile boolean oversampling = false;
+    private long oversampleRate = 0;
+    private volatile long minUpdateRate;
+    private long keepAliveRate;
+    private boolean shutdown = false;
+
+    /**
+     * Every filter built by {@link #filter()}; reset before each sample unless oversampling.
+     */
+    private final List<SampleFilter> filters = new CopyOnWriteArrayList<>();
+
+    /**
+     * Every node this sensor added to the address space, removed again on {@link #shutdown()}.
+     */
+    private final List<UaNode> nodes = new CopyOnWriteArrayList<>();
+
     private final UaNodeManager nodeManager;
     private final SubscriptionModel subscriptionModel;
     private final UaObjectNode sensorNode;
@@ -46,6 +125,17 @@ public abstract class GrovePiSensor implements Sensor {
 
         nodeManager = sensorContext.getServer().getNodeManager();
 
+        Config config = sensorContext.getConfig();
+
+        sampleTimeout = getDuration(config, DEFAULT_SAMPLE_TIMEOUT, "sensor", "grove", "sample-timeout");
+
+        circuitBreaker = new CircuitBreaker(
+            config.hasPath("sensor.grove.circuit-breaker.failure-threshold") ?
+                config.getInt("sensor.grove.circuit-breaker.failure-threshold") : DEFAULT_FAILURE_THRESHOLD,
+            getDuration(config, DEFAULT_MIN_BACKOFF, "sensor", "grove", "circuit-breaker", "min-backoff"),
+            getDuration(config, DEFAULT_MAX_BACKOFF, "sensor", "grove", "circuit-breaker", "max-backoff")
+        );
+
         subscriptionModel = new SubscriptionModel(sensorContext.getServer(), this);
 
         sensorNode = new UaObjectNode.UaObjectNodeBuilder(sensorContext.getServer())
@@ -56,6 +146,7 @@ public abstract class GrovePiSensor implements Sensor {
             .build();
 
         nodeManager.addNode(sensorNode);
+        nodes.add(sensorNode);
     }
 
     @Override
@@ -68,6 +159,44 @@ public abstract class GrovePiSensor implements Sensor {
         return sensorContext.getNamespaceUri();
     }
 
+    /**
+     * Reads are answered from node values already in memory and writes are queued for the bus, so neither blocks.
+     */
+    @Override
+    public boolean isNonBlocking() {
+        return true;
+    }
+
+    /**
+     * Stop polling, release the items still monitoring this sensor and remove its nodes from the address space. Nodes
+     * a reloaded sensor has since replaced under the same {@link NodeId} are left alone.
+     */
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+
+            cancelPolling();
+        }
+
+        releaseDataItems();
+
+        nodes.stream()
+            .filter(n -> nodeManager.get(n.getNodeId()) == n)
+            .forEach(n -> nodeManager.removeNode(n.getNodeId()));
+        nodes.clear();
+    }
+
+    @Override
+    public List<DataItem> releaseDataItems() {
+        List<DataItem> released = new ArrayList<>(dataItems);
+
+        dataItems.removeAll(released);
+        subscriptionModel.onDataItemsDeleted(released);
+
+        return released;
+    }
+
     @Override
     public CompletableFuture<List<Reference>> browse(AccessContext context, NodeId nodeId) {
         UaNode node = nodeManager.get(nodeId);
@@ -81,12 +210,32 @@ public abstract class GrovePiSensor implements Sensor {
         }
     }
 
+    /**
+     * Reads are answered from the node values maintained by the polling loop. A client read with a {@code maxAge}
+     * younger than the last sample first reads the device, joining any device read already in flight.
+     * <p>
+     * Reads without a session come from the {@link SubscriptionModel} sampling node values and are always answered
+     * from them.
+     */
     @Override
     public void read(ReadContext context,
                      Double maxAge,
                      TimestampsToReturn timestamps,
                      List<ReadValueId> readValueIds) {
 
+        double age = maxAge != null ? maxAge : 0d;
+
+        if (context.getSession().isPresent() && isOlderThan(age)) {
+            refresh().whenComplete((v, ex) -> readNodes(context, timestamps, readValueIds));
+        } else {
+            readNodes(context, timestamps, readValueIds);
+        }
+    }
+
+    private void readNodes(ReadContext context,
+                           TimestampsToReturn timestamps,
+                           List<ReadValueId> readValueIds) {
+
         List<DataValue> results = newArrayListWithCapacity(readValueIds.size());
 
         for (ReadValueId id : readValueIds) {
@@ -112,31 +261,77 @@ public abstract class GrovePiSensor implements Sensor {
         context.complete(results);
     }
 
+    /**
+     * Each value is written by {@link #writeValue(WriteValue)}; the context completes when all of them have.
+     */
     @Override
     public void write(WriteContext context, List<WriteValue> writeValues) {
-        List<StatusCode> results = writeValues.stream().map(value -> {
-            if (nodeManager.containsNode(value.getNodeId())) {
-                return new StatusCode(StatusCodes.Bad_NotWritable);
-            } else {
-                return new StatusCode(StatusCodes.Bad_NodeIdUnknown);
+        List<CompletableFuture<StatusCode>> results = writeValues.stream().map(value -> {
+            try {
+                return writeValue(value);
+            } catch (Throwable t) {
+                return completedFuture(new StatusCode(StatusCodes.Bad_UnexpectedError));
             }
         }).collect(toList());
 
-        context.complete(results);
+        sequence(results).thenAccept(context::complete);
+    }
+
+    /**
+     * Write a single value. Sensors are read-only; actuators override this to write their nodes.
+     *
+     * @param writeValue the {@link WriteValue}.
+     * @return a future completing with the result of the write.
+     */
+    protected CompletableFuture<StatusCode> writeValue(WriteValue writeValue) {
+        if (nodeManager.containsNode(writeValue.getNodeId())) {
+            return completedFuture(new StatusCode(StatusCodes.Bad_NotWritable));
+        } else {
+            return completedFuture(new StatusCode(StatusCodes.Bad_NodeIdUnknown));
+        }
+    }
+
+    /**
+     * Sampling intervals faster than the device can be polled are revised to the fastest rate it can.
+     */
+    @Override
+    public void onCreateDataItem(ReadValueId itemToMonitor,
+                                 Double requestedSamplingInterval,
+                                 UInteger requestedQueueSize,
+                                 BiConsumer<Double, UInteger> revisionCallback) {
+
+        revisionCallback.accept(reviseSamplingInterval(requestedSamplingInterval), requestedQueueSize);
+    }
+
+    @Override
+    public void onModifyDataItem(ReadValueId itemToModify,
+                                 Double requestedSamplingInterval,
+                                 UInteger requestedQueueSize,
+                                 BiConsumer<Double, UInteger> revisionCallback) {
+
+        revisionCallback.accept(reviseSamplingInterval(requestedSamplingInterval), requestedQueueSize);
     }
 
     @Override
     public void onDataItemsCreated(List<DataItem> dataItems) {
+        this.dataItems.addAll(dataItems);
+        updatePollRate();
+
         subscriptionModel.onDataItemsCreated(dataItems);
     }
 
     @Override
     public void onDataItemsModified(List<DataItem> dataItems) {
+        updatePollRate();
+
         subscriptionModel.onDataItemsModified(dataItems);
     }
 
     @Override
     public void onDataItemsDeleted(List<DataItem> dataItems) {
+        this.dataItems.removeAll(dataItems);
+        updatePollRate();
+
         subscriptionModel.onDataItemsDeleted(dataItems);
     }
 
@@ -145,6 +340,378 @@ public abstract class GrovePiSensor implements Sensor {
         subscriptionModel.onMonitoringModeChanged(monitoredItems);
     }
 
+    /**
+     * Read the device and update this sensor's nodes, or its {@link SampleFilter}s, with the result.
+     * <p>
+     * Never called concurrently; see {@link #sample()}.
+     *
+     * @return a future that completes when the nodes have been updated.
+     */
+    protected abstract CompletableFuture<Void> readDevice();
+
+    /**
+     * Publish the current output of this sensor's {@link SampleFilter}s to its nodes.
+     * <p>
+     * Only called when at least one sample has been read since the last call. Sensors that update their nodes
+     * directly from {@link #readDevice()} don't need to override this.
+     */
+    protected void publish() {}
+
+    /**
+     * Sample the device, or join the device read already in flight if there is one.
+     * <p>
+     * While the {@link CircuitBreaker} is open the device isn't read and the returned future completes immediately;
+     * the nodes keep their last values with a bad status.
+     * <p>
+     * A device read that takes longer than {@code sensor.grove.sample-timeout} is failed. Until it actually
+     * completes, samples keep joining it rather than queueing more reads behind it.
+     *
+     * @return a future that completes when the in-flight device read completes.
+     */
+    protected CompletableFuture<Void> sample() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        while (!inFlight.compareAndSet(null, future)) {
+            CompletableFuture<Void> current = inFlight.get();
+
+            if (current != null) {
+                return current;
+            }
+        }
+
+        if (!circuitBreaker.tryAcquire()) {
+            inFlight.set(null);
+            future.complete(null);
+            return future;
+        }
+
+        if (!oversampling) {
+            // Keep-alive and on-demand samples are too far apart to be averaged; publish each one as read.
+            filters.forEach(SampleFilter::reset);
+        }
+
+        CompletableFuture<Void> read;
+        try {
+            read = readDevice();
+        } catch (Throwable t) {
+            read = new CompletableFuture<>();
+            read.completeExceptionally(t);
+        }
+
+        if (sampleTimeout > 0 && !read.isDone()) {
+            ScheduledFuture<?> timeout = grovePiContext.getExecutor().schedule(
+                () -> {
+                    UaException ex = new UaException(StatusCodes.Bad_Timeout,
+                        "device read timed out after " + sampleTimeout + "ms");
+
+                    if (future.completeExceptionally(ex)) {
+                        onSampleFailed(ex);
+                    }
+                },
+                sampleTimeout,
+                TimeUnit.MILLISECONDS
+            );
+
+            read.whenComplete((v, ex) -> timeout.cancel(false));
+        }
+
+        read.whenComplete((v, ex) -> {
+            if (ex == null) {
+                lastSampleNanos = System.nanoTime();
+                sampled = true;
+                sampleCount.incrementAndGet();
+            }
+
+            inFlight.set(null);
+
+            if (ex == null) {
+                // a read that completes after timing out still counts as a success
+                future.complete(null);
+                onSampleSucceeded();
+            } else {
+                if (future.completeExceptionally(ex)) {
+                    onSampleFailed(ex);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Sample the device and publish the result.
+     */
+    private CompletableFuture<Void> refresh() {
+        return sample().whenComplete((v, ex) -> publishIfSampled());
+    }
+
+    /**
+     * Call {@link #publish()} if a sample has been read since it was last called. Stale filter output is never
+     * published, so e.g. the status set while the circuit breaker is open isn't overwritten.
+     */
+    private void publishIfSampled() {
+        synchronized (publishLock) {
+            long count = sampleCount.get();
+
+            if (count != publishedCount) {
+                publishedCount = count;
+
+                try {
+                    publish();
+                } catch (Throwable t) {
+                    logger.error("Error publishing sensor \"{}\".", sensorContext.getName(), t);
+                }
+            }
+        }
+    }
+
+    private void onSampleSucceeded() {
+        if (circuitBreaker.onSuccess()) {
+            setNodeStatus(StatusCode.GOOD);
+
+            logger.info("Sensor \"{}\" recovered.", sensorContext.getName());
+        }
+    }
+
+    /**
+     * Record a failed sample with the {@link CircuitBreaker} and mark the nodes accordingly. Only the first failure
+     * after a success and the breaker opening are logged above debug, so a dead device doesn't flood the log.
+     */
+    private void onSampleFailed(Throwable ex) {
+        CircuitBreaker.State before = circuitBreaker.getState();
+        int failuresBefore = circuitBreaker.getFailures();
+
+        CircuitBreaker.State after = circuitBreaker.onFailure();
+
+        if (after == CircuitBreaker.State.CLOSED) {
+            setNodeStatus(new StatusCode(StatusCodes.Uncertain_LastUsableValue));
+
+            if (failuresBefore == 0) {
+                logger.warn("Error reading sensor \"{}\".", sensorContext.getName(), ex);
+            } else {
+                logger.debug("Error reading sensor \"{}\": {}", sensorContext.getName(), ex.getMessage());
+            }
+        } else {
+            setNodeStatus(new StatusCode(StatusCodes.Bad_NoCommunication));
+
+            if (before == CircuitBreaker.State.CLOSED) {
+                logger.warn("Sensor \"{}\" failed {} time(s) in a row; not reading it for {}ms.",
+                    sensorContext.getName(), circuitBreaker.getFailures(), circuitBreaker.getBackoff());
+            } else {
+                logger.debug("Probe of sensor \"{}\" failed; not reading it for {}ms: {}",
+                    sensorContext.getName(), circuitBreaker.getBackoff(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Set the status of every variable node of this sensor, keeping its last value.
+     */
+    private void setNodeStatus(StatusCode status) {
+        DateTime now = DateTime.now();
+
+        for (UaNode node : nodes) {
+            if (node instanceof UaVariableNode) {
+                UaVariableNode variableNode = (UaVariableNode) node;
+                DataValue value = variableNode.getValue();
+
+                if (!status.equals(value.getStatusCode())) {
+                    variableNode.setValue(new DataValue(value.getValue(), status, value.getSourceTime(), now));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param maxAge the maximum age, in milliseconds, of a sample the caller will accept.
+     * @return {@code true} if the last successful sample is older than {@code maxAge}.
+     */
+    protected boolean isOlderThan(double maxAge) {
+        return !sampled || System.nanoTime() - lastSampleNanos >= (long) (maxAge * 1_000_000d);
+    }
+
+    /**
+     * Start polling the device.
+     * <p>
+     * While nothing is monitoring this sensor it's polled at {@code sensor.grove.keep-alive-rate}; otherwise at the
+     * fastest sampling interval requested, but never faster than {@code updateRate}.
+     * <p>
+     * If a {@code sensor.grove.filter} is configured with a faster {@code sample-rate}, a monitored sensor is instead
+     * sampled at {@code sample-rate} and its filtered values published at the polling rate.
+     *
+     * @param updateRate the fastest rate, in milliseconds, the device can be polled at.
+     */
+    protected void startPolling(long updateRate) {
+        Config config = sensorContext.getConfig();
+
+        synchronized (this) {
+            minUpdateRate = updateRate;
+
+            keepAliveRate = config.hasPath("sensor.grove.keep-alive-rate") ?
+                Math.max(updateRate, config.getDuration("sensor.grove.keep-alive-rate", TimeUnit.MILLISECONDS)) :
+                Math.max(updateRate, DEFAULT_KEEP_ALIVE_RATE);
+
+            boolean filtered = config.hasPath("sensor.grove.filter.type") &&
+                !"none".equals(config.getString("sensor.grove.filter.type"));
+
+            oversampleRate = filtered ?
+                getDuration(config, 0L, "sensor", "grove", "filter", "sample-rate") : 0L;
+        }
+
+        updatePollRate();
+    }
+
+    private double reviseSamplingInterval(Double requested) {
+        long min = minUpdateRate;
+
+        return requested == null || requested < min ? min : requested;
+    }
+
+    /**
+     * Re-register with the {@link PollScheduler} if the rate the device should be polled at has changed.
+     */
+    private synchronized void updatePollRate() {
+        if (shutdown || minUpdateRate == 0) {
+            return;
+        }
+
+        long rate = dataItems.stream()
+            .mapToLong(item -> (long) reviseSamplingInterval(item.getSamplingInterval()))
+            .min()
+            .orElse(keepAliveRate);
+
+        long sampleRate = !dataItems.isEmpty() && oversampleRate > 0 && oversampleRate < rate ? oversampleRate : 0L;
+
+        long currentSampleRate = sampleRegistration != null ? sampleRegistration.getRate() : 0L;
+
+        if (pollRegistration == null || pollRegistration.getRate() != rate || currentSampleRate != sampleRate) {
+            cancelPolling();
+
+            if (sampleRate > 0 && !oversampling) {
+                // Start the window afresh rather than from the last keep-alive sample.
+                filters.forEach(SampleFilter::reset);
+            }
+
+            oversampling = sampleRate > 0;
+
+            PollScheduler scheduler = grovePiContext.getScheduler();
+
+            if (sampleRate > 0) {
+                sampleRegistration = scheduler.register(this::sample, sampleRate);
+                pollRegistration = scheduler.register(this::publishTask, rate);
+
+                logger.debug("Sampling sensor \"{}\" every {}ms, publishing every {}ms ({} monitored item(s)).",
+                    sensorContext.getName(), sampleRate, rate, dataItems.size());
+            } else {
+                pollRegistration = scheduler.register(this::poll, rate);
+
+                logger.debug("Polling sensor \"{}\" every {}ms ({} monitored item(s)).",
+                    sensorContext.getName(), rate, dataItems.size());
+            }
+        }
+    }
+
+    private synchronized void cancelPolling() {
+        if (pollRegistration != null) {
+            pollRegistration.cancel();
+            pollRegistration = null;
+        }
+        if (sampleRegistration != null) {
+            sampleRegistration.cancel();
+            sampleRegistration = null;
+        }
+    }
+
+    /**
+     * Failures are logged and tracked by {@link #sample()}; a sensor whose breaker is open returns immediately, so it
+     * doesn't hold up the other sensors polled on the same tick.
+     */
+    private CompletableFuture<?> poll() {
+        return refresh();
+    }
+
+    private CompletableFuture<?> publishTask() {
+        publishIfSampled();
+
+        return completedFuture(null);
+    }
+
+    /**
+     * Add {@code node} to the address space as a component of this sensor's node.
+     *
+     * @param node the {@link UaVariableNode} to add.
+     */
+    protected void addComponent(UaVariableNode node) {
+        nodeManager.addNode(node);
+        sensorNode.addComponent(node);
+        nodes.add(node);
+    }
+
+    /**
+     * Build the {@link Deadband} for the node named {@code nodeName}.
+     * <p>
+     * {@code sensor.grove.deadband.absolute} and {@code sensor.grove.deadband.percent} apply to every node of the
+     * sensor and may be overridden per node under {@code sensor.grove.deadband.nodes."<node name>"}.
+     *
+     * @param nodeName the browse name of the node.
+     * @return a new {@link Deadband} for the node.
+     */
+    protected Deadband deadband(String nodeName) {
+        Config config = sensorContext.getConfig();
+
+        double absolute = getDouble(config, 0d, "sensor", "grove", "deadband", "absolute");
+        double percent = getDouble(config, 0d, "sensor", "grove", "deadband", "percent");
+
+        absolute = getDouble(config, absolute, "sensor", "grove", "deadband", "nodes", nodeName, "absolute");
+        percent = getDouble(config, percent, "sensor", "grove", "deadband", "nodes", nodeName, "percent");
+
+        return new Deadband(absolute, percent);
+    }
+
+    /**
+     * Build a {@link SampleFilter} as configured by {@code sensor.grove.filter}; one is needed per filtered node.
+     * <p>
+     * {@code type} is one of "none" (the default), "moving-average" and "median", which use the last {@code window}
+     * samples, or "ewma", which uses the smoothing factor {@code alpha}.
+     *
+     * @return a new {@link SampleFilter}.
+     */
+    protected SampleFilter filter() {
+        Config config = sensorContext.getConfig();
+
+        String type = config.hasPath("sensor.grove.filter.type") ?
+            config.getString("sensor.grove.filter.type") : "none";
+
+        int window = config.hasPath("sensor.grove.filter.window") ?
+            config.getInt("sensor.grove.filter.window") : DEFAULT_FILTER_WINDOW;
+
+        double alpha = getDouble(config, DEFAULT_FILTER_ALPHA, "sensor", "grove", "filter", "alpha");
+
+        SampleFilter filter = SampleFilter.create(type, window, alpha);
+        filters.add(filter);
+
+        return filter;
+    }
+
+    private static double getDouble(Config config, double defaultValue, String... path) {
+        String p = ConfigUtil.joinPath(path);
+
+        return config.hasPath(p) ? config.getDouble(p) : defaultValue;
+    }
+
+    private static long getDuration(Config config, long defaultValue, String... path) {
+        String p = ConfigUtil.joinPath(path);
+
+        return config.hasPath(p) ? config.getDuration(p, TimeUnit.MILLISECONDS) : defaultValue;
+    }
+
+    /**
+     * @return the {@link CircuitBreaker} guarding reads of this sensor's device.
+     */
+    protected CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
     protected GrovePiContext getGrovePiContext() {
         return grovePiContext;
     }
@@ -3,6 +3,7 @@ package com.digitalpetri.opcua.raspberrypi.grovepi;
 import com.digitalpetri.opcua.raspberrypi.api.Sensor;
 import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
 import com.digitalpetri.opcua.raspberrypi.api.SensorType;
+import com.digitalpetri.opcua.raspberrypi.grovepi.sensors.DigitalActuator;
 import com.digitalpetri.opcua.raspberrypi.grovepi.sensors.LightSensor;
 import com.digitalpetri.opcua.raspberrypi.grovepi.sensors.RotaryAngleSensor;
 import com.digitalpetri.opcua.raspberrypi.grovepi.sensors.TempAndHumiditySensor;
@@ -17,13 +18,18 @@ public class GrovePiSensorType implements SensorType {
 
         switch (groveType) {
             case TempAndHumiditySensor.GROVE_TYPE:
-                return new TempAndHumiditySensor(GrovePiContext.get(), sensorContext);
+                return new TempAndHumiditySensor(GrovePiContext.get(sensorContext), sensorContext);
 
             case LightSensor.GROVE_TYPE:
-                return new LightSensor(GrovePiContext.get(), sensorContext);
+                return new LightSensor(GrovePiContext.get(sensorContext), sensorContext);
 
             case RotaryAngleSensor.GROVE_TYPE:
-                return new RotaryAngleSensor(GrovePiContext.get(), sensorContext);
+                return new RotaryAngleSensor(GrovePiContext.get(sensorContext), sensorContext);
+
+            case DigitalActuator.RELAY_TYPE:
+            case DigitalActuator.LED_TYPE:
+            case DigitalActuator.BUZZER_TYPE:
+                return new DigitalActuator(GrovePiContext.get(sensorContext), sensorContext);
         }
 
         throw new Exception("unknown sensor.grove.grove-type value: " + groveType);
@@ -0,0 +1,180 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls sensors at fixed rates.
+ * <p>
+ * Sensors registered at the same rate share one group: a single fixed-rate tick, phase-aligned to a multiple of the
+ * rate, starts every sensor in the group together so their samples are taken on the same bus pass. Because ticks are
+ * scheduled at a fixed rate the period doesn't drift with read latency. A sensor whose previous sample is still in
+ * flight when a tick arrives is skipped for that tick and reported as an overrun; the rest of the group is sampled as
+ * usual, so one slow sensor doesn't hold back the others.
+ */
+public class PollScheduler {
+
+    private static final long OVERRUN_WARNING_INTERVAL_MILLIS = 60_000;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<Long, RateGroup> groups = Maps.newConcurrentMap();
+
+    private final ScheduledExecutorService executor;
+
+    public PollScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Poll {@code task} every {@code rate} milliseconds.
+     *
+     * @param task a task that starts a sample and returns a future completing when it's done.
+     * @param rate the polling rate, in milliseconds.
+     * @return a {@link Registration} that can be used to cancel polling.
+     */
+    public synchronized Registration register(Supplier<CompletableFuture<?>> task, long rate) {
+        long r = Math.max(1, rate);
+        PolledTask polled = new PolledTask(task);
+
+        RateGroup group = groups.computeIfAbsent(r, RateGroup::new);
+        group.tasks.add(polled);
+
+        return new Registration(polled, r);
+    }
+
+    private synchronized void unregister(PolledTask task, long rate) {
+        RateGroup group = groups.get(rate);
+
+        if (group != null) {
+            group.tasks.remove(task);
+
+            if (group.tasks.isEmpty()) {
+                group.cancel();
+                groups.remove(rate);
+            }
+        }
+    }
+
+    public class Registration {
+
+        private final PolledTask task;
+        private final long rate;
+
+        private Registration(PolledTask task, long rate) {
+            this.task = task;
+            this.rate = rate;
+        }
+
+        /**
+         * @return the rate, in milliseconds, the task is polled at.
+         */
+        public long getRate() {
+            return rate;
+        }
+
+        /**
+         * Stop polling the task.
+         */
+        public void cancel() {
+            unregister(task, rate);
+        }
+
+    }
+
+    private static class PolledTask {
+
+        final Supplier<CompletableFuture<?>> task;
+
+        final AtomicBoolean inFlight = new AtomicBoolean(false);
+
+        PolledTask(Supplier<CompletableFuture<?>> task) {
+            this.task = task;
+        }
+
+    }
+
+    private class RateGroup {
+
+        final List<PolledTask> tasks = new CopyOnWriteArrayList<>();
+
+        private final long rate;
+        private final ScheduledFuture<?> future;
+
+        private long overruns = 0;
+        private long lastOverrunWarning = 0;
+
+        RateGroup(long rate) {
+            this.rate = rate;
+
+            long initialDelay = rate - (System.currentTimeMillis() % rate);
+
+            future = executor.scheduleAtFixedRate(this::tick, initialDelay, rate, TimeUnit.MILLISECONDS);
+        }
+
+        void cancel() {
+            future.cancel(false);
+        }
+
+        private void tick() {
+            int skipped = 0;
+
+            for (PolledTask task : tasks) {
+                if (task.inFlight.compareAndSet(false, true)) {
+                    start(task);
+                } else {
+                    skipped++;
+                }
+            }
+
+            if (skipped > 0) {
+                overrun(String.format("%d of %d sensor(s) still in flight", skipped, tasks.size()));
+            }
+        }
+
+        private void start(PolledTask task) {
+            CompletableFuture<?> sample;
+            try {
+                sample = task.task.get();
+            } catch (Throwable t) {
+                task.inFlight.set(false);
+                return;
+            }
+
+            sample.whenComplete((v, ex) -> task.inFlight.set(false));
+        }
+
+        /**
+         * Record an overrun, warning at most once every {@link #OVERRUN_WARNING_INTERVAL_MILLIS}. Only called on the
+         * scheduler thread.
+         */
+        private void overrun(String reason) {
+            overruns++;
+
+            long now = System.currentTimeMillis();
+
+            if (now - lastOverrunWarning >= OVERRUN_WARNING_INTERVAL_MILLIS) {
+                logger.warn("{}ms poll tick overran ({}); {} overrun(s) since last warning.",
+                    rate, reason, overruns);
+
+                overruns = 0;
+                lastOverrunWarning = now;
+            } else {
+                logger.debug("{}ms poll tick overran ({}).", rate, reason);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.bus;
+
+/**
+ * The transactions sensors perform on a GrovePi board.
+ * <p>
+ * Every method is a blocking bus transaction. Implementations aren't required to be thread-safe; a
+ * {@link com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiContext} runs all transactions on its bus on one I/O
+ * thread.
+ */
+public interface GroveBus {
+
+    /**
+     * @param pin the analog pin (A0-A2) the light sensor is connected to.
+     * @return the light sensor value.
+     */
+    double readLight(int pin) throws Exception;
+
+    /**
+     * @param pin the analog pin (A0-A2) the rotary angle sensor is connected to.
+     * @return the rotary angle sensor reading.
+     */
+    RotaryAngle readRotaryAngle(int pin) throws Exception;
+
+    /**
+     * @param pin the digital pin (D2-D8) the DHT sensor is connected to.
+     * @return the temperature and humidity reading.
+     */
+    TemperatureAndHumidity readTemperatureAndHumidity(int pin) throws Exception;
+
+    /**
+     * Drive a digital output, e.g. a relay, LED or buzzer, configuring the pin as an output first if necessary.
+     *
+     * @param pin   the digital pin (D2-D8) the actuator is connected to.
+     * @param value {@code true} to drive the pin high.
+     */
+    void digitalWrite(int pin, boolean value) throws Exception;
+
+    /**
+     * Release any resources held by this bus.
+     */
+    default void shutdown() {}
+
+    /**
+     * A transaction, or sequence of transactions, performed on a {@link GroveBus}.
+     */
+    @FunctionalInterface
+    interface Transaction<T> {
+        T execute(GroveBus bus) throws Exception;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.bus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+import com.pi4j.io.i2c.I2CBus;
+import com.pi4j.io.i2c.I2CDevice;
+import com.pi4j.io.i2c.I2CFactory;
+
+/**
+ * A {@link GroveBus} backed by a GrovePi board at any I2C address.
+ * <p>
+ * Every transaction is a GrovePi firmware command written to the board's command register, followed, for reads, by
+ * reading the response block back, the same exchange the GrovePi Python library performs.
+ */
+public class GrovePi4jBus implements GroveBus {
+
+    public static final String BACKEND = "grovepi";
+
+    private static final int COMMAND_REGISTER = 1;
+    private static final int RESPONSE_SIZE = 32;
+
+    private static final byte DIGITAL_WRITE = 2;
+    private static final byte ANALOG_READ = 3;
+    private static final byte PIN_MODE = 5;
+    private static final byte DHT_READ = 40;
+
+    private static final byte OUTPUT = 1;
+
+    /**
+     * The DHT module type; 0 is the blue DHT11 that ships with the GrovePi kits.
+     */
+    private static final byte DHT11 = 0;
+
+    /**
+     * How long, in milliseconds, the firmware needs to take a DHT reading before the response can be read.
+     */
+    private static final long DHT_READ_DELAY = 600;
+
+    private static final double ADC_MAX = 1023d;
+    private static final double VCC = 5d;
+    private static final double FULL_ANGLE = 300d;
+
+    private final Set<Integer> outputPins = Sets.newHashSet();
+
+    private final byte[] response = new byte[RESPONSE_SIZE];
+
+    private final I2CDevice device;
+
+    public GrovePi4jBus(int address) throws Exception {
+        this.device = I2CFactory.getInstance(I2CBus.BUS_1).getDevice(address);
+    }
+
+    @Override
+    public double readLight(int pin) throws Exception {
+        return analogRead(pin);
+    }
+
+    @Override
+    public RotaryAngle readRotaryAngle(int pin) throws Exception {
+        double sensorValue = analogRead(pin);
+        double voltage = sensorValue * VCC / ADC_MAX;
+        double degrees = voltage * FULL_ANGLE / VCC;
+
+        return new RotaryAngle(sensorValue, voltage, degrees);
+    }
+
+    @Override
+    public TemperatureAndHumidity readTemperatureAndHumidity(int pin) throws Exception {
+        command(DHT_READ, pin, DHT11);
+        Thread.sleep(DHT_READ_DELAY);
+
+        ByteBuffer buffer = ByteBuffer.wrap(readResponse(9)).order(ByteOrder.LITTLE_ENDIAN);
+
+        float temperature = buffer.getFloat(1);
+        float humidity = buffer.getFloat(5);
+
+        if (Float.isNaN(temperature) || Float.isNaN(humidity)) {
+            throw new IOException("DHT sensor on pin " + pin + " returned no reading");
+        }
+
+        return new TemperatureAndHumidity(temperature, humidity);
+    }
+
+    @Override
+    public void digitalWrite(int pin, boolean value) throws Exception {
+        if (!outputPins.contains(pin)) {
+            command(PIN_MODE, pin, OUTPUT);
+            outputPins.add(pin);
+        }
+
+        command(DIGITAL_WRITE, pin, value ? 1 : 0);
+    }
+
+    private int analogRead(int pin) throws IOException {
+        command(ANALOG_READ, pin, 0);
+
+        byte[] bytes = readResponse(3);
+
+        return ((bytes[1] & 0xFF) << 8) | (bytes[2] & 0xFF);
+    }
+
+    private void command(byte command, int pin, int value) throws IOException {
+        device.write(COMMAND_REGISTER, new byte[]{command, (byte) pin, (byte) value, 0}, 0, 4);
+    }
+
+    /**
+     * Read the response to the last command; the first byte read only tells the firmware to prepare it.
+     *
+     * @param length the number of bytes the response must hold.
+     */
+    private byte[] readResponse(int length) throws IOException {
+        device.read();
+
+        int read = device.read(COMMAND_REGISTER, response, 0, RESPONSE_SIZE);
+
+        if (read < length) {
+            throw new IOException("short read from GrovePi: " + read + " bytes");
+        }
+
+        return response;
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.bus;
+
+public class RotaryAngle {
+
+    private final double sensorValue;
+    private final double voltage;
+    private final double degrees;
+
+    public RotaryAngle(double sensorValue, double voltage, double degrees) {
+        this.sensorValue = sensorValue;
+        this.voltage = voltage;
+        this.degrees = degrees;
+    }
+
+    /**
+     * @return the raw ADC value, 0-1023.
+     */
+    public double getSensorValue() {
+        return sensorValue;
+    }
+
+    public double getVoltage() {
+        return voltage;
+    }
+
+    public double getDegrees() {
+        return degrees;
+    }
+
+    @Override
+    public String toString() {
+        return "RotaryAngle{" +
+            "sensorValue=" + sensorValue +
+            ", voltage=" + voltage +
+            ", degrees=" + degrees +
+            '}';
+    }
+
+}
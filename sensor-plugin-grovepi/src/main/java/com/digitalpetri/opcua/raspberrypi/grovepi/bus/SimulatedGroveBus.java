@@ -0,0 +1,164 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.bus;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * An in-process {@link GroveBus} for running sensors without a GrovePi board, e.g. to load test the server with
+ * thousands of sensors.
+ * <p>
+ * Each transaction takes {@code latency} plus a uniformly distributed {@code jitter}, blocking the bus like a real
+ * transaction would. Pins read slow sine waves, phase-shifted by pin number, with gaussian noise added. Transactions
+ * fail at random at {@code failureRate}, and always while the bus or the pin has been set offline.
+ */
+public class SimulatedGroveBus implements GroveBus {
+
+    public static final String BACKEND = "simulated";
+
+    private static final double ADC_MAX = 1023d;
+    private static final double VCC = 5d;
+    private static final double FULL_ANGLE = 300d;
+
+    private final long startNanos = System.nanoTime();
+
+    private final Set<Integer> offlinePins = Sets.newConcurrentHashSet();
+
+    private final Map<Integer, Boolean> outputs = Maps.newConcurrentMap();
+
+    private volatile boolean offline = false;
+    private volatile double failureRate;
+
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final long periodNanos;
+    private final double noise;
+
+    /**
+     * @param latency     the time, in microseconds, every transaction takes.
+     * @param jitter      the maximum additional time, in microseconds, a transaction takes.
+     * @param period      the period, in milliseconds, of the simulated signals.
+     * @param noise       the standard deviation of the noise added to signals, as a fraction of full scale.
+     * @param failureRate the probability, 0-1, that a transaction fails.
+     */
+    public SimulatedGroveBus(long latency, long jitter, long period, double noise, double failureRate) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, latency));
+        this.jitterNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, jitter));
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, period));
+        this.noise = noise;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public double readLight(int pin) throws Exception {
+        return readAnalog(pin);
+    }
+
+    @Override
+    public RotaryAngle readRotaryAngle(int pin) throws Exception {
+        double sensorValue = readAnalog(pin);
+        double voltage = sensorValue * VCC / ADC_MAX;
+        double degrees = voltage * FULL_ANGLE / VCC;
+
+        return new RotaryAngle(sensorValue, voltage, degrees);
+    }
+
+    @Override
+    public TemperatureAndHumidity readTemperatureAndHumidity(int pin) throws Exception {
+        transaction(pin);
+
+        double temperature = 22d + 3d * (signal(pin, 0d) + gaussianNoise());
+        double humidity = 45d + 10d * (signal(pin, 0.25) + gaussianNoise());
+
+        return new TemperatureAndHumidity(temperature, humidity);
+    }
+
+    @Override
+    public void digitalWrite(int pin, boolean value) throws Exception {
+        transaction(pin);
+
+        outputs.put(pin, value);
+    }
+
+    /**
+     * @param pin the pin.
+     * @return the value last written to {@code pin}, or {@code null} if none has been.
+     */
+    public Boolean getOutput(int pin) {
+        return outputs.get(pin);
+    }
+
+    /**
+     * @param offline {@code true} to fail every transaction, as if the board were unplugged.
+     */
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * @param pin     the pin.
+     * @param offline {@code true} to fail every transaction on {@code pin}, as if its device were unplugged.
+     */
+    public void setOffline(int pin, boolean offline) {
+        if (offline) {
+            offlinePins.add(pin);
+        } else {
+            offlinePins.remove(pin);
+        }
+    }
+
+    /**
+     * @param failureRate the probability, 0-1, that a transaction fails.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    private double readAnalog(int pin) throws IOException {
+        transaction(pin);
+
+        double value = ADC_MAX / 2d * (1d + 0.9 * signal(pin, 0d) + gaussianNoise());
+
+        return Math.rint(Math.max(0d, Math.min(ADC_MAX, value)));
+    }
+
+    private void transaction(int pin) throws IOException {
+        long delay = latencyNanos;
+
+        if (jitterNanos > 0) {
+            delay += ThreadLocalRandom.current().nextLong(jitterNanos);
+        }
+
+        if (delay > 0) {
+            LockSupport.parkNanos(delay);
+        }
+
+        if (offline || offlinePins.contains(pin)) {
+            throw new IOException("simulated device on pin " + pin + " is offline");
+        }
+
+        if (failureRate > 0d && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IOException("simulated transaction failure on pin " + pin);
+        }
+    }
+
+    /**
+     * @return a sine wave in [-1, 1], phase-shifted by pin number and {@code phase} (in periods).
+     */
+    private double signal(int pin, double phase) {
+        double t = (double) (System.nanoTime() - startNanos) / periodNanos;
+
+        return Math.sin(2d * Math.PI * (t + phase + pin / 16d));
+    }
+
+    private double gaussianNoise() {
+        return noise > 0d ? noise * ThreadLocalRandom.current().nextGaussian() : 0d;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.bus;
+
+public class TemperatureAndHumidity {
+
+    private final double temperature;
+    private final double humidity;
+
+    public TemperatureAndHumidity(double temperature, double humidity) {
+        this.temperature = temperature;
+        this.humidity = humidity;
+    }
+
+    /**
+     * @return the temperature, in degrees Celsius.
+     */
+    public double getTemperature() {
+        return temperature;
+    }
+
+    /**
+     * @return the relative humidity, in percent.
+     */
+    public double getHumidity() {
+        return humidity;
+    }
+
+    @Override
+    public String toString() {
+        return "TemperatureAndHumidity{" +
+            "temperature=" + temperature +
+            ", humidity=" + humidity +
+            '}';
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.filter;
+
+/**
+ * Exponentially weighted moving average; each sample contributes {@code alpha} of the new value.
+ */
+public class EwmaFilter implements SampleFilter {
+
+    public static final String TYPE = "ewma";
+
+    private final double alpha;
+
+    private double value = Double.NaN;
+    private boolean empty = true;
+
+    public EwmaFilter(double alpha) {
+        if (alpha <= 0d || alpha > 1d) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+
+        this.alpha = alpha;
+    }
+
+    @Override
+    public synchronized void add(double sample) {
+        if (empty) {
+            value = sample;
+            empty = false;
+        } else {
+            value += alpha * (sample - value);
+        }
+    }
+
+    @Override
+    public synchronized double value() {
+        return value;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return empty;
+    }
+
+    @Override
+    public synchronized void reset() {
+        value = Double.NaN;
+        empty = true;
+    }
+
+}
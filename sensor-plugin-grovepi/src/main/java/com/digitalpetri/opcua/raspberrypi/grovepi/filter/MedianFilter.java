@@ -0,0 +1,58 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.filter;
+
+import java.util.Arrays;
+
+/**
+ * Median of the last {@code window} samples. Rejects spikes that would drag a moving average.
+ */
+public class MedianFilter implements SampleFilter {
+
+    public static final String TYPE = "median";
+
+    private final double[] samples;
+    private final double[] sorted;
+
+    private int next = 0;
+    private int count = 0;
+
+    public MedianFilter(int window) {
+        samples = new double[Math.max(1, window)];
+        sorted = new double[samples.length];
+    }
+
+    @Override
+    public synchronized void add(double sample) {
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    @Override
+    public synchronized double value() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        System.arraycopy(samples, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+
+        int mid = count / 2;
+
+        return count % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2d;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+    }
+
+}
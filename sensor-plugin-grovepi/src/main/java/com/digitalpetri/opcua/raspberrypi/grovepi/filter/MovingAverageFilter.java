@@ -0,0 +1,59 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.filter;
+
+/**
+ * Mean of the last {@code window} samples, kept as a running sum over a ring buffer.
+ */
+public class MovingAverageFilter implements SampleFilter {
+
+    public static final String TYPE = "moving-average";
+
+    private final double[] samples;
+
+    private int next = 0;
+    private int count = 0;
+    private double sum = 0d;
+
+    public MovingAverageFilter(int window) {
+        samples = new double[Math.max(1, window)];
+    }
+
+    @Override
+    public synchronized void add(double sample) {
+        if (count == samples.length) {
+            sum -= samples[next];
+        } else {
+            count++;
+        }
+
+        samples[next] = sample;
+        sum += sample;
+
+        next = (next + 1) % samples.length;
+
+        if (next == 0) {
+            // re-sum once per lap so rounding error in the running sum doesn't accumulate
+            sum = 0d;
+            for (int i = 0; i < count; i++) {
+                sum += samples[i];
+            }
+        }
+    }
+
+    @Override
+    public synchronized double value() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public synchronized void reset() {
+        next = 0;
+        count = 0;
+        sum = 0d;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.filter;
+
+/**
+ * Smooths a stream of samples taken faster than they're published.
+ * <p>
+ * Implementations keep their state in primitive arrays sized at construction, so {@link #add(double)} doesn't
+ * allocate. {@link #add(double)} and {@link #value()} may be called from different threads.
+ */
+public interface SampleFilter {
+
+    /**
+     * Add a sample.
+     *
+     * @param sample the raw sample.
+     */
+    void add(double sample);
+
+    /**
+     * @return the filtered value of the samples added so far; {@link Double#NaN} if there are none.
+     */
+    double value();
+
+    /**
+     * @return {@code true} if no samples have been added yet.
+     */
+    boolean isEmpty();
+
+    /**
+     * Discard every sample added so far.
+     */
+    void reset();
+
+    /**
+     * Create a filter by name.
+     *
+     * @param type   "none", "moving-average", "median" or "ewma".
+     * @param window the number of samples averaged by "moving-average" and "median".
+     * @param alpha  the smoothing factor used by "ewma", in (0, 1].
+     * @return a new {@link SampleFilter}.
+     * @throws IllegalArgumentException if {@code type} is unknown.
+     */
+    static SampleFilter create(String type, int window, double alpha) {
+        switch (type) {
+            case "none":
+                return new MovingAverageFilter(1);
+
+            case MovingAverageFilter.TYPE:
+                return new MovingAverageFilter(window);
+
+            case MedianFilter.TYPE:
+                return new MedianFilter(window);
+
+            case EwmaFilter.TYPE:
+                return new EwmaFilter(alpha);
+        }
+
+        throw new IllegalArgumentException("unknown filter type: " + type);
+    }
+
+}
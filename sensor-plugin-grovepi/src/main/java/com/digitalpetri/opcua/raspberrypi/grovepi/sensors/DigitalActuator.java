@@ -0,0 +1,126 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi.sensors;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
+import com.digitalpetri.opcua.raspberrypi.grovepi.CoalescingWriter;
+import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiContext;
+import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiSensor;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
+import org.eclipse.milo.opcua.stack.core.AttributeId;
+import org.eclipse.milo.opcua.stack.core.Identifiers;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
+import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
+
+/**
+ * A relay, LED or buzzer on a digital pin, switched by writing its "On" node.
+ * <p>
+ * Writes are coalesced by a {@link CoalescingWriter}: while a write is waiting for the bus, later writes replace its
+ * value, so a burst of writes costs one bus transaction.
+ * <p>
+ * The pin is left as it is until the first write unless {@code sensor.grove.initial-state} is configured, so loading
+ * or reloading the actuator doesn't switch it.
+ */
+public class DigitalActuator extends GrovePiSensor {
+
+    public static final String RELAY_TYPE = "relay";
+    public static final String LED_TYPE = "led";
+    public static final String BUZZER_TYPE = "buzzer";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final UaVariableNode onNode;
+
+    private final CoalescingWriter<Boolean> writer;
+
+    public DigitalActuator(GrovePiContext grovePiContext, SensorContext sensorContext) {
+        super(grovePiContext, sensorContext);
+
+        int pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
+
+        writer = new CoalescingWriter<>(grovePiContext, (bus, value) -> bus.digitalWrite(pinNumber, value));
+
+        onNode = new UaVariableNode.UaVariableNodeBuilder(sensorContext.getServer())
+            .setNodeId(sensorContext.nodeId("On"))
+            .setBrowseName(new QualifiedName(sensorContext.getNamespaceIndex(), "On"))
+            .setDisplayName(LocalizedText.english("On"))
+            .setDataType(Identifiers.Boolean)
+            .build();
+
+        UByte accessLevel = ubyte(AccessLevel.getMask(AccessLevel.READ_WRITE));
+        onNode.setAccessLevel(accessLevel);
+        onNode.setUserAccessLevel(accessLevel);
+
+        onNode.setValue(new DataValue(new Variant(false), new StatusCode(StatusCodes.Uncertain_InitialValue)));
+
+        addComponent(onNode);
+
+        if (sensorContext.getConfig().hasPath("sensor.grove.initial-state")) {
+            boolean initialState = sensorContext.getConfig().getBoolean("sensor.grove.initial-state");
+
+            writer.write(initialState).whenComplete((v, ex) -> {
+                if (ex == null) {
+                    onNode.setValue(new DataValue(new Variant(initialState)));
+                } else {
+                    logger.warn("Error initializing actuator \"{}\".", sensorContext.getName(), ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * The "On" node holds the last value written, so there's nothing to read.
+     */
+    @Override
+    protected CompletableFuture<Void> readDevice() {
+        return completedFuture(null);
+    }
+
+    @Override
+    protected CompletableFuture<StatusCode> writeValue(WriteValue writeValue) {
+        if (!onNode.getNodeId().equals(writeValue.getNodeId())) {
+            return super.writeValue(writeValue);
+        }
+
+        if (!AttributeId.Value.uid().equals(writeValue.getAttributeId())) {
+            return completedFuture(new StatusCode(StatusCodes.Bad_NotWritable));
+        }
+
+        if (writeValue.getIndexRange() != null && !writeValue.getIndexRange().isEmpty()) {
+            return completedFuture(new StatusCode(StatusCodes.Bad_IndexRangeInvalid));
+        }
+
+        Object value = writeValue.getValue().getValue().getValue();
+
+        if (!(value instanceof Boolean)) {
+            return completedFuture(new StatusCode(StatusCodes.Bad_TypeMismatch));
+        }
+
+        Boolean on = (Boolean) value;
+
+        return writer.write(on).handle((v, ex) -> {
+            if (ex == null) {
+                onNode.setValue(new DataValue(new Variant(on)));
+
+                return StatusCode.GOOD;
+            } else {
+                logger.debug("Error writing actuator \"{}\": {}", getSensorContext().getName(), ex.getMessage());
+
+                return new StatusCode(StatusCodes.Bad_CommunicationError);
+            }
+        });
+    }
+
+}
@@ -1,48 +1,38 @@
 package com.digitalpetri.opcua.raspberrypi.grovepi.sensors;
 
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
-import com.digitalpetri.grovepi.GroveAnalogPin;
-import com.digitalpetri.grovepi.sensors.GroveLightSensor;
 import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
 import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiContext;
 import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiSensor;
-import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
+import com.digitalpetri.opcua.raspberrypi.grovepi.filter.SampleFilter;
+import com.digitalpetri.opcua.raspberrypi.util.Deadband;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class LightSensor extends GrovePiSensor {
 
     public static final String GROVE_TYPE = "light";
 
-    private final Logger logger = LoggerFactory.getLogger(getClass());
-
     private final UaVariableNode colorTemperatureNode;
+    private final Deadband colorTemperatureDeadband;
+    private final SampleFilter colorTemperatureFilter;
 
     private final long updateRate;
-    private final GroveLightSensor sensor;
+    private final int pinNumber;
 
     public LightSensor(GrovePiContext grovePiContext, SensorContext sensorContext) {
         super(grovePiContext, sensorContext);
 
-        UaNodeManager nodeManager = sensorContext.getServer().getNodeManager();
-
         updateRate = sensorContext.getConfig().getDuration(
             "sensor.grove.update-rate", TimeUnit.MILLISECONDS);
 
-        int pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
-
-        sensor = new GroveLightSensor(
-            grovePiContext.getGrovePi(),
-            GroveAnalogPin.values()[pinNumber]
-        );
+        pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
 
         colorTemperatureNode = new UaVariableNode.UaVariableNodeBuilder(sensorContext.getServer())
             .setNodeId(sensorContext.nodeId("Color Temperature"))
@@ -51,26 +41,29 @@ public class LightSensor extends GrovePiSensor {
             .setDataType(Identifiers.Double)
             .build();
 
-        nodeManager.addNode(colorTemperatureNode);
-        getSensorNode().addComponent(colorTemperatureNode);
+        addComponent(colorTemperatureNode);
+        colorTemperatureDeadband = deadband("Color Temperature");
+        colorTemperatureFilter = filter();
 
-        readSensor();
+        startPolling(updateRate);
     }
 
-    private void readSensor() {
-        sensor.getValue().whenComplete((v, ex) -> {
-            if (v != null) {
-                DataValue temp = new DataValue(new Variant(v));
+    @Override
+    protected CompletableFuture<Void> readDevice() {
+        return getGrovePiContext()
+            .submit(bus -> bus.readLight(pinNumber))
+            .thenAccept(colorTemperatureFilter::add);
+    }
 
-                colorTemperatureNode.setValue(temp);
-            } else {
-                logger.error("Error reading color temperature.", ex);
-            }
+    @Override
+    protected void publish() {
+        double v = colorTemperatureFilter.value();
 
-            ScheduledExecutorService executor = getGrovePiContext().getExecutor();
+        if (colorTemperatureDeadband.exceeded(v)) {
+            DataValue temp = new DataValue(new Variant(v));
 
-            executor.schedule(this::readSensor, updateRate, TimeUnit.MILLISECONDS);
-        });
+            colorTemperatureNode.setValue(temp);
+        }
     }
 
 }
@@ -1,49 +1,46 @@
 package com.digitalpetri.opcua.raspberrypi.grovepi.sensors;
 
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
-import com.digitalpetri.grovepi.GroveAnalogPin;
 import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
 import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiContext;
 import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiSensor;
-import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
+import com.digitalpetri.opcua.raspberrypi.grovepi.filter.SampleFilter;
+import com.digitalpetri.opcua.raspberrypi.util.Deadband;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class RotaryAngleSensor extends GrovePiSensor {
 
     public static final String GROVE_TYPE = "rotary-angle";
 
-    private final Logger logger = LoggerFactory.getLogger(getClass());
-
     private final UaVariableNode sensorValueNode;
     private final UaVariableNode voltageNode;
     private final UaVariableNode degreesNode;
 
+    private final Deadband sensorValueDeadband;
+    private final Deadband voltageDeadband;
+    private final Deadband degreesDeadband;
+
+    private final SampleFilter sensorValueFilter;
+    private final SampleFilter voltageFilter;
+    private final SampleFilter degreesFilter;
+
     private final long updateRate;
-    private final com.digitalpetri.grovepi.sensors.RotaryAngleSensor sensor;
+    private final int pinNumber;
 
     public RotaryAngleSensor(GrovePiContext grovePiContext, SensorContext sensorContext) {
         super(grovePiContext, sensorContext);
 
-        UaNodeManager nodeManager = sensorContext.getServer().getNodeManager();
-
         updateRate = sensorContext.getConfig().getDuration(
             "sensor.grove.update-rate", TimeUnit.MILLISECONDS);
 
-        int pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
-
-        sensor = new com.digitalpetri.grovepi.sensors.RotaryAngleSensor(
-            grovePiContext.getGrovePi(),
-            GroveAnalogPin.values()[pinNumber]
-        );
+        pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
 
         sensorValueNode = new UaVariableNode.UaVariableNodeBuilder(sensorContext.getServer())
             .setNodeId(sensorContext.nodeId("Sensor Value"))
@@ -52,8 +49,7 @@ public class RotaryAngleSensor extends GrovePiSensor {
             .setDataType(Identifiers.Double)
             .build();
 
-        nodeManager.addNode(sensorValueNode);
-        getSensorNode().addComponent(sensorValueNode);
+        addComponent(sensorValueNode);
 
         voltageNode = new UaVariableNode.UaVariableNodeBuilder(sensorContext.getServer())
             .setNodeId(sensorContext.nodeId("Voltage"))
@@ -62,8 +58,7 @@ public class RotaryAngleSensor extends GrovePiSensor {
             .setDataType(Identifiers.Double)
             .build();
 
-        nodeManager.addNode(voltageNode);
-        getSensorNode().addComponent(voltageNode);
+        addComponent(voltageNode);
 
         degreesNode = new UaVariableNode.UaVariableNodeBuilder(sensorContext.getServer())
             .setNodeId(sensorContext.nodeId("Degrees"))
@@ -72,31 +67,43 @@ public class RotaryAngleSensor extends GrovePiSensor {
             .setDataType(Identifiers.Double)
             .build();
 
-        nodeManager.addNode(degreesNode);
-        getSensorNode().addComponent(degreesNode);
+        addComponent(degreesNode);
 
-        readSensor();
-    }
-
-    private void readSensor() {
-        sensor.getRotaryAngle().whenComplete((v, ex) -> {
-            if (v != null) {
-                DataValue sensorValue = new DataValue(new Variant(v.getSensorValue()));
-                DataValue voltage = new DataValue(new Variant(v.getVoltage()));
-                DataValue degrees = new DataValue(new Variant(v.getDegrees()));
+        sensorValueDeadband = deadband("Sensor Value");
+        voltageDeadband = deadband("Voltage");
+        degreesDeadband = deadband("Degrees");
 
-                sensorValueNode.setValue(sensorValue);
-                voltageNode.setValue(voltage);
-                degreesNode.setValue(degrees);
-            } else {
-                logger.error("Error reading rotary angle.", ex);
-            }
+        sensorValueFilter = filter();
+        voltageFilter = filter();
+        degreesFilter = filter();
 
-            ScheduledExecutorService executor = getGrovePiContext().getExecutor();
+        startPolling(updateRate);
+    }
 
-            executor.schedule(this::readSensor, updateRate, TimeUnit.MILLISECONDS);
+    @Override
+    protected CompletableFuture<Void> readDevice() {
+        return getGrovePiContext().submit(bus -> bus.readRotaryAngle(pinNumber)).thenAccept(v -> {
+            sensorValueFilter.add(v.getSensorValue());
+            voltageFilter.add(v.getVoltage());
+            degreesFilter.add(v.getDegrees());
         });
     }
 
+    @Override
+    protected void publish() {
+        double sensorValue = sensorValueFilter.value();
+        double voltage = voltageFilter.value();
+        double degrees = degreesFilter.value();
+
+        if (sensorValueDeadband.exceeded(sensorValue)) {
+            sensorValueNode.setValue(new DataValue(new Variant(sensorValue)));
+        }
+        if (voltageDeadband.exceeded(voltage)) {
+            voltageNode.setValue(new DataValue(new Variant(voltage)));
+        }
+        if (degreesDeadband.exceeded(degrees)) {
+            degreesNode.setValue(new DataValue(new Variant(degrees)));
+        }
+    }
 
 }
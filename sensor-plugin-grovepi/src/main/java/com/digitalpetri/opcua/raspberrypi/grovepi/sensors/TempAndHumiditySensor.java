@@ -1,14 +1,12 @@
 package com.digitalpetri.opcua.raspberrypi.grovepi.sensors;
 
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
-import com.digitalpetri.grovepi.GroveDigitalPin;
-import com.digitalpetri.grovepi.sensors.TemperatureAndHumiditySensor;
 import com.digitalpetri.opcua.raspberrypi.api.SensorContext;
 import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiContext;
 import com.digitalpetri.opcua.raspberrypi.grovepi.GrovePiSensor;
-import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
+import com.digitalpetri.opcua.raspberrypi.util.Deadband;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaVariableNode;
 import org.eclipse.milo.opcua.stack.core.Identifiers;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
@@ -16,37 +14,28 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 public class TempAndHumiditySensor extends GrovePiSensor {
 
     public static final String GROVE_TYPE = "temperature-humidity";
 
-    private final Logger logger = LoggerFactory.getLogger(getClass());
-
     private final long updateRate;
 
     private final UaVariableNode temperatureNode;
     private final UaVariableNode humidityNode;
 
-    private final TemperatureAndHumiditySensor sensor;
+    private final Deadband temperatureDeadband;
+    private final Deadband humidityDeadband;
+
+    private final int pinNumber;
 
     public TempAndHumiditySensor(GrovePiContext grovePiContext, SensorContext sensorContext) {
         super(grovePiContext, sensorContext);
 
-        UaNodeManager addressSpace = sensorContext.getServer().getNodeManager();
-
         updateRate = sensorContext.getConfig().getDuration(
             "sensor.grove.update-rate", TimeUnit.MILLISECONDS);
 
-        int pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
-
-        sensor = new TemperatureAndHumiditySensor(
-            grovePiContext.getGrovePi(),
-            GroveDigitalPin.values()[pinNumber],
-            0
-        );
+        pinNumber = sensorContext.getConfig().getInt("sensor.grove.pin-number");
 
         NodeId temperatureNodeId = sensorContext.nodeId("Temperature");
         NodeId humidityNodeId = sensorContext.nodeId("Humidity");
@@ -58,8 +47,7 @@ public class TempAndHumiditySensor extends GrovePiSensor {
             .setDataType(Identifiers.Float)
             .build();
 
-        addressSpace.addNode(temperatureNode);
-        getSensorNode().addComponent(temperatureNode);
+        addComponent(temperatureNode);
 
         humidityNode = new UaVariableNode.UaVariableNodeBuilder(sensorContext.getServer())
             .setNodeId(humidityNodeId)
@@ -68,27 +56,26 @@ public class TempAndHumiditySensor extends GrovePiSensor {
             .setDataType(Identifiers.Float)
             .build();
 
-        addressSpace.addNode(humidityNode);
-        getSensorNode().addComponent(humidityNode);
+        addComponent(humidityNode);
 
-        readSensor();
+        temperatureDeadband = deadband("Temperature");
+        humidityDeadband = deadband("Humidity");
+
+        startPolling(updateRate);
     }
 
-    private void readSensor() {
-        sensor.getTemperatureAndHumidity().whenComplete((v, ex) -> {
-            if (v != null) {
-                DataValue temp = new DataValue(new Variant(v.getTemperature()));
-                DataValue humidity = new DataValue(new Variant(v.getHumidity()));
+    @Override
+    protected CompletableFuture<Void> readDevice() {
+        return getGrovePiContext().submit(bus -> bus.readTemperatureAndHumidity(pinNumber)).thenAccept(v -> {
+            float temperature = (float) v.getTemperature();
+            float humidity = (float) v.getHumidity();
 
-                temperatureNode.setValue(temp);
-                humidityNode.setValue(humidity);
-            } else {
-                logger.error("Error reading temperature and humidity.", ex);
+            if (temperatureDeadband.exceeded(temperature)) {
+                temperatureNode.setValue(new DataValue(new Variant(temperature)));
+            }
+            if (humidityDeadband.exceeded(humidity)) {
+                humidityNode.setValue(new DataValue(new Variant(humidity)));
             }
-
-            ScheduledExecutorService executor = getGrovePiContext().getExecutor();
-
-            executor.schedule(this::readSensor, updateRate, TimeUnit.MILLISECONDS);
         });
     }
 
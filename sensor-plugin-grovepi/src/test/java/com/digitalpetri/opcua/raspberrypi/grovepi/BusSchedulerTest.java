@@ -0,0 +1,73 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BusSchedulerTest {
+
+    private static final long TIMEOUT_MILLIS = 100;
+
+    private ScheduledExecutorService watchdog;
+    private BusScheduler busScheduler;
+
+    @Before
+    public void setUp() {
+        watchdog = Executors.newSingleThreadScheduledExecutor();
+        busScheduler = new BusScheduler(Executors::newSingleThreadExecutor, watchdog, TIMEOUT_MILLIS);
+    }
+
+    @After
+    public void tearDown() {
+        watchdog.shutdownNow();
+    }
+
+    @Test
+    public void hungTransactionIsAbandonedAndTheRestCarryOn() throws Exception {
+        CountDownLatch timedOut = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(2);
+
+        busScheduler.read(() -> {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, timedOut::countDown);
+
+        busScheduler.read(ran::countDown, () -> {});
+        busScheduler.write(ran::countDown, () -> {});
+
+        assertTrue("hung transaction not timed out", timedOut.await(1, TimeUnit.SECONDS));
+        assertTrue("hung I/O thread not interrupted", interrupted.await(1, TimeUnit.SECONDS));
+        assertTrue("queued transactions didn't run", ran.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void slowTransactionWithinTimeoutIsNotAbandoned() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        CountDownLatch timedOut = new CountDownLatch(1);
+
+        busScheduler.read(() -> {
+            try {
+                Thread.sleep(TIMEOUT_MILLIS / 2);
+                done.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        }, timedOut::countDown);
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertFalse("transaction within its timeout was abandoned",
+            timedOut.await(TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS));
+    }
+
+}
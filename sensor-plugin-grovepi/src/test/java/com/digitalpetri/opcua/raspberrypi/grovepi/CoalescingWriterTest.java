@@ -0,0 +1,73 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoalescingWriterTest {
+
+    private static final int ADDRESS = 0x7e;
+
+    private GrovePiContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = GrovePiContext.get(
+            "simulated",
+            ADDRESS,
+            ConfigFactory.parseString("grovepi.transaction-timeout = 100ms").withFallback(ConfigFactory.load()),
+            Runnable::run
+        );
+    }
+
+    @After
+    public void tearDown() {
+        GrovePiContext.remove("simulated", ADDRESS);
+    }
+
+    @Test
+    public void hungWriteFailsItsWaitersAndLaterWritesCarryOn() throws Exception {
+        CountDownLatch hung = new CountDownLatch(1);
+        List<String> written = Lists.newCopyOnWriteArrayList();
+
+        CoalescingWriter<String> writer = new CoalescingWriter<>(context, (bus, value) -> {
+            if (value.equals("hang")) {
+                hung.countDown();
+                Thread.sleep(Long.MAX_VALUE);
+            }
+
+            written.add(value);
+        });
+
+        CompletableFuture<Void> hanging = writer.write("hang");
+        assertTrue("write didn't start", hung.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> superseded = writer.write("first");
+        CompletableFuture<Void> latest = writer.write("second");
+
+        try {
+            hanging.get(1, TimeUnit.SECONDS);
+            fail("hung write completed");
+        } catch (ExecutionException expected) {
+            // A TimeoutException, or the retired I/O thread's InterruptedException if that got there first.
+        }
+
+        superseded.get(1, TimeUnit.SECONDS);
+        latest.get(1, TimeUnit.SECONDS);
+
+        assertEquals(Lists.newArrayList("second"), written);
+    }
+
+}
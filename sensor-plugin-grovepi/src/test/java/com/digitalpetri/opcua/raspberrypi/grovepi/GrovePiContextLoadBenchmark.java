@@ -0,0 +1,89 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.Lists;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Sampling throughput of one simulated GrovePi board with many sensors polled through its scheduler and I/O thread.
+ * <p>
+ * Not part of the default test run; run it with {@code mvn test -Dtest=GrovePiContextLoadBenchmark}.
+ */
+public class GrovePiContextLoadBenchmark {
+
+    private static final int ADDRESS = 0x7f;
+
+    private static final int SENSORS = 500;
+    private static final long RATE_MILLIS = 100;
+    private static final long RUN_MILLIS = 2_000;
+
+    private ExecutorService executor;
+    private Config config;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(16);
+
+        config = ConfigFactory.parseString(
+            "grovepi.simulation { latency = 100us, jitter = 0us, noise = 0 }"
+        ).withFallback(ConfigFactory.load());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+
+        GrovePiContext.remove("simulated", ADDRESS);
+    }
+
+    @Test
+    public void simulatedBoardWithManySensors() throws Exception {
+        GrovePiContext context = GrovePiContext.get("simulated", ADDRESS, config, executor);
+
+        LongAdder samples = new LongAdder();
+        LongAdder failures = new LongAdder();
+
+        List<PollScheduler.Registration> registrations = Lists.newArrayList();
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < SENSORS; i++) {
+            int pin = i % 3;
+
+            registrations.add(context.getScheduler().register(
+                () -> context.submit(bus -> bus.readLight(pin)).whenComplete((v, ex) -> {
+                    if (ex == null) {
+                        samples.increment();
+                    } else {
+                        failures.increment();
+                    }
+                }),
+                RATE_MILLIS
+            ));
+        }
+
+        Thread.sleep(RUN_MILLIS);
+
+        registrations.forEach(PollScheduler.Registration::cancel);
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long expected = SENSORS * (RUN_MILLIS / RATE_MILLIS);
+
+        System.out.printf("%d sensors at %dms: %d of %d samples in %dms (%.0f/s), %d failures%n",
+            SENSORS, RATE_MILLIS, samples.sum(), expected, elapsed, samples.sum() * 1000d / elapsed, failures.sum());
+
+        assertEquals(0, failures.sum());
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GrovePiContextTest {
+
+    private static final int FIRST_ADDRESS = 0x70;
+    private static final int BOARDS = 4;
+
+    private ExecutorService executor;
+    private Config config;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(16);
+        config = ConfigFactory.load();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+
+        for (int i = 0; i < BOARDS; i++) {
+            GrovePiContext.remove("simulated", FIRST_ADDRESS + i);
+        }
+    }
+
+    @Test
+    public void parallelLookupsCreateOneContextPerBoard() throws Exception {
+        List<CompletableFuture<GrovePiContext>> futures = Lists.newArrayList();
+
+        for (int i = 0; i < 256; i++) {
+            int address = FIRST_ADDRESS + (i % BOARDS);
+
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return GrovePiContext.get("simulated", address, config, executor);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, executor));
+        }
+
+        Set<GrovePiContext> contexts = Sets.newIdentityHashSet();
+        futures.forEach(f -> contexts.add(f.join()));
+
+        assertEquals(BOARDS, contexts.size());
+    }
+
+}
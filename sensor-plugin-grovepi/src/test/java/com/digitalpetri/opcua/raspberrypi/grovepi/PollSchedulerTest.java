@@ -0,0 +1,64 @@
+package com.digitalpetri.opcua.raspberrypi.grovepi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PollSchedulerTest {
+
+    private static final long RATE_MILLIS = 20;
+
+    private ScheduledExecutorService executor;
+    private PollScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new PollScheduler(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void stuckTaskDoesNotHoldBackTheRestOfItsGroup() throws Exception {
+        AtomicInteger stuckStarts = new AtomicInteger();
+        AtomicInteger healthySamples = new AtomicInteger();
+
+        CompletableFuture<Void> stuck = new CompletableFuture<>();
+
+        PollScheduler.Registration r1 = scheduler.register(() -> {
+            stuckStarts.incrementAndGet();
+            return stuck;
+        }, RATE_MILLIS);
+
+        PollScheduler.Registration r2 = scheduler.register(() -> {
+            healthySamples.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }, RATE_MILLIS);
+
+        Thread.sleep(RATE_MILLIS * 25);
+
+        assertEquals("stuck task started again while in flight", 1, stuckStarts.get());
+        assertTrue("healthy task skipped ticks: " + healthySamples.get(), healthySamples.get() >= 15);
+
+        stuck.complete(null);
+        Thread.sleep(RATE_MILLIS * 5);
+
+        assertTrue("stuck task not polled again once done", stuckStarts.get() > 1);
+
+        r1.cancel();
+        r2.cancel();
+    }
+
+}
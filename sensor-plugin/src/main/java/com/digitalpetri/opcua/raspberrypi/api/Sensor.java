@@ -1,6 +1,38 @@
 package com.digitalpetri.opcua.raspberrypi.api;
 
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.milo.opcua.sdk.server.api.DataItem;
 import org.eclipse.milo.opcua.sdk.server.api.Namespace;
 
 public interface Sensor extends Namespace {
+
+    /**
+     * A non-blocking sensor's read and write never block the calling thread, e.g. because they're answered from node
+     * values already in memory, so the {@link SensorNamespace} may call them inline instead of handing them off to
+     * the server's executor.
+     *
+     * @return {@code true} if this sensor's read and write are non-blocking.
+     */
+    default boolean isNonBlocking() {
+        return false;
+    }
+
+    /**
+     * Called when this sensor is removed from the {@link SensorNamespace}. Stop any polling and remove any nodes this
+     * sensor added to the address space.
+     */
+    default void shutdown() {}
+
+    /**
+     * Stop tracking every item monitoring this sensor's nodes. Called before {@link #shutdown()} when this sensor is
+     * replaced by a reload of its config, so the items can be handed to the sensor replacing it.
+     *
+     * @return the items that were monitoring this sensor's nodes.
+     */
+    default List<DataItem> releaseDataItems() {
+        return Collections.emptyList();
+    }
+
 }
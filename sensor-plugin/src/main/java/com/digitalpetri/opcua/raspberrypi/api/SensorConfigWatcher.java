@@ -0,0 +1,162 @@
+package com.digitalpetri.opcua.raspberrypi.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches a sensor config directory, and its subdirectories, for .conf files being created, modified or deleted.
+ * <p>
+ * Events are collected until the directory has been quiet for {@link #QUIET_PERIOD_MILLIS} so an editor saving a
+ * file in several steps results in a single notification per file.
+ */
+class SensorConfigWatcher {
+
+    private static final long QUIET_PERIOD_MILLIS = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<WatchKey, Path> directories = Maps.newConcurrentMap();
+
+    private final WatchService watchService;
+    private final Thread thread;
+
+    private final Consumer<File> onChanged;
+    private final Consumer<File> onDeleted;
+
+    /**
+     * @param directory the directory to watch.
+     * @param onChanged called with each .conf file that was created or modified.
+     * @param onDeleted called with each .conf file that was deleted.
+     */
+    SensorConfigWatcher(File directory, Consumer<File> onChanged, Consumer<File> onDeleted) throws IOException {
+        this.onChanged = onChanged;
+        this.onDeleted = onDeleted;
+
+        watchService = FileSystems.getDefault().newWatchService();
+
+        registerAll(directory.toPath());
+
+        thread = new Thread(this::run, "sensor-config-watcher");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing WatchService.", e);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = Sets.newLinkedHashSet();
+                Set<Path> deleted = Sets.newLinkedHashSet();
+
+                WatchKey key = watchService.take();
+
+                while (key != null) {
+                    handle(key, changed, deleted);
+
+                    key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                deleted.forEach(p -> onDeleted.accept(p.toFile()));
+                changed.forEach(p -> onChanged.accept(p.toFile()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("WatchService closed.");
+        }
+    }
+
+    private void handle(WatchKey key, Set<Path> changed, Set<Path> deleted) {
+        Path directory = directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || directory == null) {
+                logger.warn("Sensor config events were lost; changes may need to be re-applied.");
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerAll(path);
+                    findConfigFiles(path, changed);
+                } catch (IOException e) {
+                    logger.error("Error watching directory {}.", path, e);
+                }
+            } else if (path.toString().endsWith(".conf")) {
+                if (event.kind() == ENTRY_DELETE) {
+                    changed.remove(path);
+                    deleted.add(path);
+                } else {
+                    deleted.remove(path);
+                    changed.add(path);
+                }
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void registerAll(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                directories.put(key, dir);
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void findConfigFiles(Path root, Set<Path> configFiles) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (file.toString().endsWith(".conf")) {
+                    configFiles.add(file);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+}
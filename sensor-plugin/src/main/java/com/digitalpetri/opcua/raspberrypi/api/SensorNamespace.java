@@ -3,12 +3,15 @@ package com.digitalpetri.opcua.raspberrypi.api;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.typesafe.config.Config;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
 import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
@@ -30,15 +33,16 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.NodeClass;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
 import org.eclipse.milo.opcua.stack.core.types.structured.ReadValueId;
 import org.eclipse.milo.opcua.stack.core.types.structured.WriteValue;
+import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static org.eclipse.milo.opcua.stack.core.util.FutureUtils.failedUaFuture;
 import static org.eclipse.milo.opcua.stack.core.util.FutureUtils.sequence;
@@ -47,10 +51,27 @@ public class SensorNamespace implements Namespace {
 
     public static final String NAMESPACE_URI = "urn:digitalpetri:opcua:piserver:sensors";
 
+    /**
+     * Default read and write deadline, in milliseconds, for sensors that don't configure one.
+     */
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    private static final DataValue TIMEOUT_VALUE = new DataValue(StatusCodes.Bad_Timeout);
+    private static final StatusCode TIMEOUT_STATUS = new StatusCode(StatusCodes.Bad_Timeout);
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Map<String, Sensor> sensors = Maps.newConcurrentMap();
 
+    private final SensorRoutes routes = new SensorRoutes();
+
+    private final Map<Sensor, Deadlines> deadlines = Maps.newConcurrentMap();
+
+    /**
+     * The reference from each sensor's parent folder to its root node, keyed by sensor name.
+     */
+    private final Map<String, Reference> rootReferences = Maps.newConcurrentMap();
+
     private final UaNodeManager nodeManager;
     private final SubscriptionModel subscriptionModel;
     private final NodeId sensorsFolderNodeId;
@@ -88,7 +109,16 @@ public class SensorNamespace implements Namespace {
         );
     }
 
-    public void addPlugin(Sensor sensor, SensorContext context) {
+    /**
+     * Add every loaded sensor in one batch.
+     *
+     * @param plugins the sensors to add, each with its {@link SensorContext}.
+     */
+    public synchronized void addPlugins(List<Tuple2<Sensor, SensorContext>> plugins) {
+        plugins.forEach(p -> addPlugin(p.v1(), p.v2()));
+    }
+
+    public synchronized void addPlugin(Sensor sensor, SensorContext context) {
         // Build the browse path nodes...
         List<String> browsePath = context.getConfig().getStringList("sensor.browse-path");
         List<UaNode> browsePathNodes = createNodes(browsePath, Lists.newArrayList(), Lists.newArrayList());
@@ -107,9 +137,116 @@ public class SensorNamespace implements Namespace {
 
         references.forEach(nodeManager::addReference);
 
+        rootReferences.put(context.getName(), references.get(references.size() - 1));
+
+        Config config = context.getConfig();
+
+        deadlines.put(sensor, new Deadlines(
+            timeout(config, "sensor.read-timeout"),
+            timeout(config, "sensor.write-timeout")
+        ));
+
         sensors.put(context.getName(), sensor);
     }
 
+    /**
+     * Remove the sensor named {@code name}: stop routing requests to it, unlink it from the address space and shut it
+     * down.
+     *
+     * @param name the name of the sensor to remove.
+     */
+    public synchronized void removePlugin(String name) {
+        Sensor sensor = sensors.remove(name);
+
+        routes.remove(name);
+        unlink(name);
+
+        if (sensor != null) {
+            deadlines.remove(sensor);
+            shutdown(name, sensor);
+        }
+    }
+
+    /**
+     * Remove every sensor, shutting each down.
+     */
+    public synchronized void removePlugins() {
+        Lists.newArrayList(sensors.keySet()).forEach(this::removePlugin);
+    }
+
+    /**
+     * Replace the sensor named {@code previous} with {@code sensor}, a reload of its config that has already been
+     * created and may reuse its {@link NodeId}s. Requests are routed to the new sensor before the previous one is shut
+     * down, and the items monitoring the previous sensor are handed to the new one if its name is unchanged.
+     *
+     * @param previous the name of the sensor to replace.
+     * @param sensor   the sensor replacing it.
+     * @param context  the {@link SensorContext} of {@code sensor}.
+     */
+    public synchronized void replacePlugin(String previous, Sensor sensor, SensorContext context) {
+        Sensor replaced = sensors.get(previous);
+
+        unlink(previous);
+        addPlugin(sensor, context);
+
+        if (!previous.equals(context.getName())) {
+            sensors.remove(previous);
+            routes.remove(previous);
+        }
+
+        if (replaced != null && replaced != sensor) {
+            deadlines.remove(replaced);
+
+            List<DataItem> dataItems = replaced.releaseDataItems();
+
+            shutdown(previous, replaced);
+
+            if (!dataItems.isEmpty() && previous.equals(context.getName())) {
+                sensor.onDataItemsCreated(dataItems);
+            }
+        }
+    }
+
+    /**
+     * Remove the reference linking the sensor named {@code name} into the address space.
+     */
+    private void unlink(String name) {
+        Reference reference = rootReferences.remove(name);
+        if (reference != null) {
+            nodeManager.getNode(reference.getSourceNodeId())
+                .ifPresent(n -> n.removeReference(reference));
+        }
+    }
+
+    private void shutdown(String name, Sensor sensor) {
+        try {
+            sensor.shutdown();
+        } catch (Throwable t) {
+            logger.error("Error shutting down sensor \"{}\".", name, t);
+        }
+    }
+
+    /**
+     * @param name a sensor name.
+     * @return {@code true} if a sensor named {@code name} has been added.
+     */
+    public boolean hasPlugin(String name) {
+        return sensors.containsKey(name);
+    }
+
+    /**
+     * Route requests for {@code nodeId} to the sensor named {@code sensorName}.
+     * <p>
+     * Called for every {@link NodeId} created by {@link SensorContext#nodeId(Object)}, so routing a request doesn't
+     * need to parse the sensor name out of the identifier.
+     *
+     * @param nodeId     the {@link NodeId} to route.
+     * @param sensorName the name of the sensor the node belongs to.
+     */
+    void addRoute(NodeId nodeId, String sensorName) {
+        routes.add(nodeId, sensorName);
+    }
+
     @Override
     public UShort getNamespaceIndex() {
         return namespaceIndex;
@@ -128,9 +265,11 @@ public class SensorNamespace implements Namespace {
         if (node != null) {
             return CompletableFuture.completedFuture(node.getReferences());
         } else {
-            return sensor(nodeId)
-                .map(c -> c.browse(context, nodeId))
-                .orElse(failedUaFuture(StatusCodes.Bad_NodeIdUnknown));
+            Sensor sensor = sensor(nodeId);
+
+            return sensor != null ?
+                sensor.browse(context, nodeId) :
+                failedUaFuture(StatusCodes.Bad_NodeIdUnknown);
         }
     }
 
@@ -140,32 +279,42 @@ public class SensorNamespace implements Namespace {
                      TimestampsToReturn timestamps,
                      List<ReadValueId> readValueIds) {
 
+        Sensor only = singleSensor(readValueIds, ReadValueId::getNodeId);
+
+        if (only != null && only.isNonBlocking()) {
+            CompletableFuture<List<DataValue>> callback = new CompletableFuture<>();
+
+            only.read(readContext(readContext, callback), maxAge, timestamps, readValueIds);
+
+            withDeadline(callback, deadlines(only).read, readValueIds.size(), TIMEOUT_VALUE);
+            callback.thenAccept(readContext::complete);
+            return;
+        }
+
         List<PendingRead> pendingReads = readValueIds.stream()
             .map(PendingRead::new)
             .collect(toList());
 
-        Map<Optional<Sensor>, List<PendingRead>> byPlugin = pendingReads.stream()
-            .collect(groupingBy(p -> sensor(p.getInput().getNodeId())));
-
-        byPlugin.keySet().forEach(plugin -> {
-            List<PendingRead> pending = byPlugin.get(plugin);
+        Map<Sensor, List<PendingRead>> byPlugin = bySensor(pendingReads, p -> p.getInput().getNodeId());
 
+        byPlugin.forEach((plugin, pending) -> {
             List<ReadValueId> ids = pending.stream()
                 .map(PendingRead::getInput)
                 .collect(toList());
 
             CompletableFuture<List<DataValue>> callback = Pending.callback(pending);
 
-            if (plugin.isPresent()) {
-                ReadContext context = new ReadContext(
-                    readContext.getServer(),
-                    readContext.getSession().orElse(null),
-                    callback,
-                    readContext.getDiagnostics()
-                );
+            if (plugin != null) {
+                ReadContext context = readContext(readContext, callback);
+
+                if (plugin.isNonBlocking()) {
+                    plugin.read(context, maxAge, timestamps, ids);
+                } else {
+                    server.getExecutorService().execute(
+                        () -> plugin.read(context, maxAge, timestamps, ids));
+                }
 
-                server.getExecutorService().execute(
-                    () -> plugin.get().read(context, maxAge, timestamps, ids));
+                withDeadline(callback, deadlines(plugin).read, ids.size(), TIMEOUT_VALUE);
             } else {
                 callback.complete(read(new AttributeContext(readContext), ids));
             }
@@ -179,40 +328,53 @@ public class SensorNamespace implements Namespace {
             .map(PendingRead::getFuture)
             .collect(toList());
 
-        sequence(futures).thenAcceptAsync(
-            readContext::complete,
-            server.getExecutorService()
-        );
+        CompletableFuture<List<DataValue>> values = sequence(futures);
+
+        if (values.isDone()) {
+            readContext.complete(values.join());
+        } else {
+            values.thenAcceptAsync(readContext::complete, server.getExecutorService());
+        }
     }
 
     @Override
     public void write(WriteContext writeContext, List<WriteValue> writeValues) {
+        Sensor only = singleSensor(writeValues, WriteValue::getNodeId);
+
+        if (only != null && only.isNonBlocking()) {
+            CompletableFuture<List<StatusCode>> callback = new CompletableFuture<>();
+
+            only.write(writeContext(writeContext, callback), writeValues);
+
+            withDeadline(callback, deadlines(only).write, writeValues.size(), TIMEOUT_STATUS);
+            callback.thenAccept(writeContext::complete);
+            return;
+        }
+
         List<PendingWrite> pendingWrites = writeValues.stream()
             .map(PendingWrite::new)
             .collect(toList());
 
-        Map<Optional<Sensor>, List<PendingWrite>> byPlugin = pendingWrites.stream()
-            .collect(groupingBy(p -> sensor(p.getInput().getNodeId())));
-
-        byPlugin.keySet().forEach(plugin -> {
-            List<PendingWrite> pending = byPlugin.get(plugin);
+        Map<Sensor, List<PendingWrite>> byPlugin = bySensor(pendingWrites, p -> p.getInput().getNodeId());
 
+        byPlugin.forEach((plugin, pending) -> {
             List<WriteValue> values = pending.stream()
                 .map(PendingWrite::getInput)
                 .collect(toList());
 
             CompletableFuture<List<StatusCode>> callback = Pending.callback(pending);
 
-            if (plugin.isPresent()) {
-                WriteContext context = new WriteContext(
-                    writeContext.getServer(),
-                    writeContext.getSession().orElse(null),
-                    callback,
-                    writeContext.getDiagnostics()
-                );
+            if (plugin != null) {
+                WriteContext context = writeContext(writeContext, callback);
 
-                server.getExecutorService().execute(
-                    () -> plugin.get().write(context, values));
+                if (plugin.isNonBlocking()) {
+                    plugin.write(context, values);
+                } else {
+                    server.getExecutorService().execute(
+                        () -> plugin.write(context, values));
+                }
+
+                withDeadline(callback, deadlines(plugin).write, values.size(), TIMEOUT_STATUS);
             } else {
                 callback.complete(write(values));
             }
@@ -222,22 +384,52 @@ public class SensorNamespace implements Namespace {
             .map(PendingWrite::getFuture)
             .collect(toList());
 
-        sequence(futures).thenAcceptAsync(
-            writeContext::complete,
-            server.getExecutorService()
-        );
+        CompletableFuture<List<StatusCode>> statusCodes = sequence(futures);
+
+        if (statusCodes.isDone()) {
+            writeContext.complete(statusCodes.join());
+        } else {
+            statusCodes.thenAcceptAsync(writeContext::complete, server.getExecutorService());
+        }
     }
 
     @Override
-    public void onDataItemsCreated(List<DataItem> monitoredItems) {
-        Map<Optional<Sensor>, List<DataItem>> byPlugin = monitoredItems.stream()
-            .collect(groupingBy(item -> sensor(item.getReadValueId().getNodeId())));
+    public void onCreateDataItem(ReadValueId itemToMonitor,
+                                 Double requestedSamplingInterval,
+                                 UInteger requestedQueueSize,
+                                 BiConsumer<Double, UInteger> revisionCallback) {
+
+        Sensor sensor = sensor(itemToMonitor.getNodeId());
+
+        if (sensor != null) {
+            sensor.onCreateDataItem(itemToMonitor, requestedSamplingInterval, requestedQueueSize, revisionCallback);
+        } else {
+            revisionCallback.accept(requestedSamplingInterval, requestedQueueSize);
+        }
+    }
+
+    @Override
+    public void onModifyDataItem(ReadValueId itemToModify,
+                                 Double requestedSamplingInterval,
+                                 UInteger requestedQueueSize,
+                                 BiConsumer<Double, UInteger> revisionCallback) {
+
+        Sensor sensor = sensor(itemToModify.getNodeId());
 
-        byPlugin.keySet().forEach(plugin -> {
-            List<DataItem> items = byPlugin.get(plugin);
+        if (sensor != null) {
+            sensor.onModifyDataItem(itemToModify, requestedSamplingInterval, requestedQueueSize, revisionCallback);
+        } else {
+            revisionCallback.accept(requestedSamplingInterval, requestedQueueSize);
+        }
+    }
+
+    @Override
+    public void onDataItemsCreated(List<DataItem> monitoredItems) {
+        Map<Sensor, List<DataItem>> byPlugin = bySensor(monitoredItems, item -> item.getReadValueId().getNodeId());
 
-            if (plugin.isPresent()) {
-                plugin.get().onDataItemsCreated(items);
+        byPlugin.forEach((plugin, items) -> {
+            if (plugin != null) {
+                plugin.onDataItemsCreated(items);
             } else {
                 subscriptionModel.onDataItemsCreated(items);
             }
@@ -246,14 +438,11 @@ public class SensorNamespace implements Namespace {
 
     @Override
     public void onDataItemsModified(List<DataItem> monitoredItems) {
-        Map<Optional<Sensor>, List<DataItem>> byPlugin = monitoredItems.stream()
-            .collect(groupingBy(item -> sensor(item.getReadValueId().getNodeId())));
-
-        byPlugin.keySet().forEach(plugin -> {
-            List<DataItem> items = byPlugin.get(plugin);
+        Map<Sensor, List<DataItem>> byPlugin = bySensor(monitoredItems, item -> item.getReadValueId().getNodeId());
 
-            if (plugin.isPresent()) {
-                plugin.get().onDataItemsModified(items);
+        byPlugin.forEach((plugin, items) -> {
+            if (plugin != null) {
+                plugin.onDataItemsModified(items);
             } else {
                 subscriptionModel.onDataItemsModified(items);
             }
@@ -262,14 +451,11 @@ public class SensorNamespace implements Namespace {
 
     @Override
     public void onDataItemsDeleted(List<DataItem> monitoredItems) {
-        Map<Optional<Sensor>, List<DataItem>> byPlugin = monitoredItems.stream()
-            .collect(groupingBy(item -> sensor(item.getReadValueId().getNodeId())));
+        Map<Sensor, List<DataItem>> byPlugin = bySensor(monitoredItems, item -> item.getReadValueId().getNodeId());
 
-        byPlugin.keySet().forEach(plugin -> {
-            List<DataItem> items = byPlugin.get(plugin);
-
-            if (plugin.isPresent()) {
-                plugin.get().onDataItemsDeleted(items);
+        byPlugin.forEach((plugin, items) -> {
+            if (plugin != null) {
+                plugin.onDataItemsDeleted(items);
             } else {
                 subscriptionModel.onDataItemsDeleted(items);
             }
@@ -278,20 +464,67 @@ public class SensorNamespace implements Namespace {
 
     @Override
     public void onMonitoringModeChanged(List<MonitoredItem> monitoredItems) {
-        Map<Optional<Sensor>, List<MonitoredItem>> byPlugin = monitoredItems.stream()
-            .collect(groupingBy(item -> sensor(item.getReadValueId().getNodeId())));
-
-        byPlugin.keySet().forEach(plugin -> {
-            List<MonitoredItem> items = byPlugin.get(plugin);
+        Map<Sensor, List<MonitoredItem>> byPlugin = bySensor(monitoredItems, item -> item.getReadValueId().getNodeId());
 
-            if (plugin.isPresent()) {
-                plugin.get().onMonitoringModeChanged(items);
+        byPlugin.forEach((plugin, items) -> {
+            if (plugin != null) {
+                plugin.onMonitoringModeChanged(items);
             } else {
                 subscriptionModel.onMonitoringModeChanged(items);
             }
         });
     }
 
+    private ReadContext readContext(ReadContext readContext, CompletableFuture<List<DataValue>> callback) {
+        return new ReadContext(
+            readContext.getServer(),
+            readContext.getSession().orElse(null),
+            callback,
+            readContext.getDiagnostics()
+        );
+    }
+
+    private WriteContext writeContext(WriteContext writeContext, CompletableFuture<List<StatusCode>> callback) {
+        return new WriteContext(
+            writeContext.getServer(),
+            writeContext.getSession().orElse(null),
+            callback,
+            writeContext.getDiagnostics()
+        );
+    }
+
+    /**
+     * If {@code callback} isn't complete within {@code timeout} milliseconds, complete it with {@code size} copies
+     * of {@code timedOut} so the rest of the request isn't held up by a sensor that never answers.
+     */
+    private <T> void withDeadline(CompletableFuture<List<T>> callback, long timeout, int size, T timedOut) {
+        if (timeout > 0 && !callback.isDone()) {
+            ScheduledFuture<?> timer = server.getScheduledExecutorService().schedule(
+                () -> {
+                    if (callback.complete(Collections.nCopies(size, timedOut))) {
+                        logger.warn("Sensor did not complete {} item(s) within {}ms.", size, timeout);
+                    }
+                },
+                timeout,
+                TimeUnit.MILLISECONDS
+            );
+
+            callback.whenComplete((r, ex) -> timer.cancel(false));
+        }
+    }
+
+    private Deadlines deadlines(Sensor sensor) {
+        Deadlines d = deadlines.get(sensor);
+
+        return d != null ? d : Deadlines.DEFAULT;
+    }
+
+    private static long timeout(Config config, String path) {
+        return config.hasPath(path) ?
+            config.getDuration(path, TimeUnit.MILLISECONDS) :
+            DEFAULT_TIMEOUT;
+    }
+
     private List<DataValue> read(AttributeContext context, List<ReadValueId> readValueIds) {
         return readValueIds.stream().map(id -> {
             NodeId nodeId = id.getNodeId();
@@ -309,14 +542,54 @@ public class SensorNamespace implements Namespace {
         return Collections.nCopies(values.size(), new StatusCode(StatusCodes.Bad_NotWritable));
     }
 
-    private Optional<Sensor> sensor(NodeId nodeId) {
-        String id = nodeId.getIdentifier().toString();
-        Matcher matcher = SensorContext.SENSOR_PREFIX_PATTERN.matcher(id);
-        boolean matches = matcher.matches();
+    /**
+     * Group {@code items} by the {@link Sensor} their {@link NodeId} routes to. Items that don't belong to any sensor
+     * are grouped under the {@code null} key.
+     */
+    private <T> Map<Sensor, List<T>> bySensor(List<T> items, Function<T, NodeId> nodeId) {
+        Map<Sensor, List<T>> bySensor = Maps.newLinkedHashMap();
+
+        for (T item : items) {
+            Sensor sensor = sensor(nodeId.apply(item));
+
+            List<T> list = bySensor.get(sensor);
+            if (list == null) {
+                list = Lists.newArrayList();
+                bySensor.put(sensor, list);
+            }
+            list.add(item);
+        }
+
+        return bySensor;
+    }
+
+    /**
+     * @return the {@link Sensor} every one of {@code items} belongs to, or {@code null} if they don't all belong to
+     * the same sensor.
+     */
+    private <T> Sensor singleSensor(List<T> items, Function<T, NodeId> nodeId) {
+        Sensor sensor = null;
+
+        for (T item : items) {
+            Sensor s = sensor(nodeId.apply(item));
+
+            if (s == null || (sensor != null && s != sensor)) {
+                return null;
+            }
+
+            sensor = s;
+        }
+
+        return sensor;
+    }
+
+    /**
+     * @return the {@link Sensor} {@code nodeId} belongs to, or {@code null} if it doesn't belong to any sensor.
+     */
+    private Sensor sensor(NodeId nodeId) {
+        String name = routes.sensorName(nodeId);
 
-        return matches ?
-            Optional.ofNullable(sensors.get(matcher.group(1))) :
-            Optional.empty();
+        return name != null ? sensors.get(name) : null;
     }
 
     private List<UaNode> createNodes(List<String> browsePath, List<String> currentPath, List<UaNode> nodes) {
@@ -378,4 +651,18 @@ public class SensorNamespace implements Namespace {
         }
     }
 
+    private static class Deadlines {
+
+        static final Deadlines DEFAULT = new Deadlines(DEFAULT_TIMEOUT, DEFAULT_TIMEOUT);
+
+        final long read;
+        final long write;
+
+        Deadlines(long read, long write) {
+            this.read = read;
+            this.write = write;
+        }
+
+    }
+
 }
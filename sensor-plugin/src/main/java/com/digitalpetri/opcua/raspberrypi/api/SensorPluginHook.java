@@ -2,9 +2,17 @@ package com.digitalpetri.opcua.raspberrypi.api;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.digitalpetri.opcua.raspberrypi.plugins.PluginContext;
 import com.digitalpetri.opcua.raspberrypi.plugins.PluginHook;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 import org.eclipse.milo.opcua.sdk.server.OpcUaServer;
@@ -15,11 +23,25 @@ import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.stream.Collectors.toList;
+
 public class SensorPluginHook implements PluginHook {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    /**
+     * {@link SensorType}s, keyed by class name, shared by every sensor of that type.
+     */
+    private final Map<String, SensorType> sensorTypes = Maps.newConcurrentMap();
+
+    /**
+     * The context of the sensor loaded from each config file.
+     */
+    private final Map<File, SensorContext> sensorFiles = Maps.newConcurrentMap();
+
     private volatile PluginContext pluginContext;
+    private volatile SensorNamespace namespace;
+    private volatile SensorConfigWatcher watcher;
 
     @Override
     public void startup(PluginContext context) {
@@ -29,7 +51,7 @@ public class SensorPluginHook implements PluginHook {
 
         OpcUaServer server = context.getServer();
 
-        SensorNamespace namespace = server.getNamespaceManager().registerAndAdd(
+        namespace = server.getNamespaceManager().registerAndAdd(
             SensorNamespace.NAMESPACE_URI,
             (namespaceIdx) -> new SensorNamespace(server, namespaceIdx));
 
@@ -39,6 +61,21 @@ public class SensorPluginHook implements PluginHook {
     @Override
     public void shutdown(PluginContext context) {
         logger.info("shutdown()");
+
+        SensorConfigWatcher w = watcher;
+        if (w != null) {
+            w.stop();
+        }
+
+        // Stop the sensors' polling and publishing; a reload still in progress finishes first.
+        synchronized (this) {
+            SensorNamespace n = namespace;
+            if (n != null) {
+                n.removePlugins();
+            }
+
+            sensorFiles.clear();
+        }
     }
 
     private void loadSensors(File configDirectory, SensorNamespace namespace) {
@@ -49,41 +86,170 @@ public class SensorPluginHook implements PluginHook {
             return;
         }
 
-        loadSensorDirectory(sensorDirectory, namespace);
+        long start = System.nanoTime();
+
+        List<File> configFiles = Lists.newArrayList();
+        findConfigFiles(sensorDirectory, configFiles);
+
+        /*
+         * Parse and construct every sensor in parallel, then register them all with the namespace at once.
+         */
+        ExecutorService executor = pluginContext.getServer().getExecutorService();
+
+        List<CompletableFuture<Tuple2<Sensor, SensorContext>>> futures = configFiles.stream()
+            .map(file -> CompletableFuture.supplyAsync(() -> loadTimed(file, namespace), executor))
+            .collect(toList());
+
+        List<Tuple2<Sensor, SensorContext>> loaded = futures.stream()
+            .map(CompletableFuture::join)
+            .filter(Objects::nonNull)
+            .collect(toList());
+
+        namespace.addPlugins(loaded);
+
+        logger.info("Loaded {} of {} sensors in {}ms.",
+            loaded.size(), configFiles.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        try {
+            watcher = new SensorConfigWatcher(sensorDirectory, this::onConfigChanged, this::onConfigDeleted);
+            watcher.start();
+        } catch (Exception e) {
+            logger.error("Error watching {}; sensor changes require a restart.", sensorDirectory, e);
+        }
+    }
+
+    /**
+     * A sensor config file was created or modified: replace the sensor previously loaded from it, if any.
+     */
+    private synchronized void onConfigChanged(File file) {
+        File key = file.getAbsoluteFile();
+
+        String name;
+        try {
+            name = ConfigFactory.parseFile(file).getString("sensor.sensor-name");
+        } catch (Exception e) {
+            logger.error("Error reading sensor config {}.", file, e);
+            return;
+        }
+
+        SensorContext previous = sensorFiles.get(key);
+
+        if ((previous == null || !name.equals(previous.getName())) && namespace.hasPlugin(name)) {
+            logger.error("Not loading {}: a sensor named \"{}\" is already loaded.", file, name);
+            return;
+        }
+
+        // The previous sensor keeps running until its replacement has loaded.
+        Tuple2<Sensor, SensorContext> tuple = loadTimed(file, namespace);
+
+        if (tuple != null) {
+            if (previous != null) {
+                namespace.replacePlugin(previous.getName(), tuple.v1(), tuple.v2());
+
+                logger.info("Replaced sensor \"{}\" with the reloaded sensor \"{}\".",
+                    previous.getName(), tuple.v2().getName());
+            } else {
+                namespace.addPlugin(tuple.v1(), tuple.v2());
+            }
+        } else if (previous != null) {
+            restore(key, previous);
+        }
     }
 
-    private void loadSensorDirectory(File directory, SensorNamespace namespace) {
+    /**
+     * A reload of the sensor loaded from {@code file} failed, possibly after replacing some of its nodes: create it
+     * again from the config it was last loaded from.
+     */
+    private void restore(File file, SensorContext previous) {
+        try {
+            Tuple2<Sensor, SensorContext> tuple = load(previous.getConfig(), namespace);
+
+            namespace.replacePlugin(previous.getName(), tuple.v1(), tuple.v2());
+            sensorFiles.put(file, tuple.v2());
+
+            logger.warn("Kept sensor \"{}\" as last loaded; fix {} to reload it.", previous.getName(), file);
+        } catch (Exception e) {
+            sensorFiles.remove(file);
+            namespace.removePlugin(previous.getName());
+
+            logger.error("Error restoring sensor \"{}\"; removed it.", previous.getName(), e);
+        }
+    }
+
+    /**
+     * A sensor config file was deleted: remove the sensor loaded from it, if any.
+     */
+    private synchronized void onConfigDeleted(File file) {
+        SensorContext context = sensorFiles.remove(file.getAbsoluteFile());
+
+        if (context != null) {
+            namespace.removePlugin(context.getName());
+
+            logger.info("Removed sensor \"{}\"; {} was deleted.", context.getName(), file);
+        }
+    }
+
+    private void findConfigFiles(File directory, List<File> configFiles) {
         /*
-         * Load any .conf files in this directory.
+         * Collect any .conf files in this directory.
 		 */
-        File[] configFiles = directory.listFiles(pathname -> pathname.getPath().endsWith(".conf"));
+        File[] files = directory.listFiles(pathname -> pathname.getPath().endsWith(".conf"));
 
-        if (configFiles != null) {
-            Arrays.stream(configFiles).forEach(file -> {
-                try {
-                    Tuple2<Sensor, SensorContext> tuple = load(file, namespace);
-
-                    namespace.addPlugin(tuple.v1(), tuple.v2());
-                } catch (Exception e) {
-                    logger.error("Error loading connection.", e);
-                }
-            });
+        if (files != null) {
+            configFiles.addAll(Arrays.asList(files));
         }
 
 		/*
-         * Recursively descend into subdirectories loading .conf files as we go.
+         * Recursively descend into subdirectories collecting .conf files as we go.
 		 */
         File[] dirs = directory.listFiles(File::isDirectory);
         if (dirs != null) {
-            Arrays.stream(dirs).forEach(d -> loadSensorDirectory(d, namespace));
+            Arrays.stream(dirs).forEach(d -> findConfigFiles(d, configFiles));
         }
     }
 
-    private Tuple2<Sensor, SensorContext> load(File file, SensorNamespace namespace) throws Exception {
-        Config config = ConfigFactory.parseFile(file);
+    /**
+     * Load the sensor configured in {@code file}, logging how long it took.
+     *
+     * @return the loaded sensor and its context, or {@code null} if it could not be loaded.
+     */
+    private Tuple2<Sensor, SensorContext> loadTimed(File file, SensorNamespace namespace) {
+        long start = System.nanoTime();
+
+        try {
+            Tuple2<Sensor, SensorContext> tuple = load(ConfigFactory.parseFile(file), namespace);
 
-        SensorType sensorType = SensorType.class.cast(
-            Class.forName(config.getString("sensor.sensor-type")).newInstance());
+            sensorFiles.put(file.getAbsoluteFile(), tuple.v2());
+
+            logger.info("Loaded sensor \"{}\" from {} in {}ms.",
+                tuple.v2().getName(), file.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            return tuple;
+        } catch (Exception e) {
+            logger.error("Error loading sensor from {}.", file, e);
+
+            return null;
+        }
+    }
+
+    private SensorType sensorType(String className) throws Exception {
+        SensorType sensorType = sensorTypes.get(className);
+
+        if (sensorType == null) {
+            sensorType = SensorType.class.cast(Class.forName(className).newInstance());
+
+            SensorType existing = sensorTypes.putIfAbsent(className, sensorType);
+
+            if (existing != null) {
+                sensorType = existing;
+            }
+        }
+
+        return sensorType;
+    }
+
+    private Tuple2<Sensor, SensorContext> load(Config config, SensorNamespace namespace) throws Exception {
+        SensorType sensorType = sensorType(config.getString("sensor.sensor-type"));
 
         String name = config.getString("sensor.sensor-name");
 
@@ -92,9 +258,11 @@ public class SensorPluginHook implements PluginHook {
             String.format("[%s]", name)
         );
 
+        namespace.addRoute(rootNodeId, name);
+
         SensorContextImpl sensorContext = new SensorContextImpl(
             pluginContext.getServer(),
-            namespace.getNamespaceIndex(),
+            namespace,
             name,
             config,
             rootNodeId
@@ -108,19 +276,19 @@ public class SensorPluginHook implements PluginHook {
     private static class SensorContextImpl implements SensorContext {
 
         private final OpcUaServer server;
-        private final UShort namespaceIndex;
+        private final SensorNamespace namespace;
         private final String name;
         private final Config config;
         private final NodeId rootNodeId;
 
         public SensorContextImpl(OpcUaServer server,
-                                 UShort namespaceIndex,
+                                 SensorNamespace namespace,
                                  String name,
                                  Config config,
                                  NodeId rootNodeId) {
 
             this.server = server;
-            this.namespaceIndex = namespaceIndex;
+            this.namespace = namespace;
             this.name = name;
             this.config = config;
             this.rootNodeId = rootNodeId;
@@ -133,7 +301,7 @@ public class SensorPluginHook implements PluginHook {
 
         @Override
         public UShort getNamespaceIndex() {
-            return namespaceIndex;
+            return namespace.getNamespaceIndex();
         }
 
         @Override
@@ -158,7 +326,11 @@ public class SensorPluginHook implements PluginHook {
 
         @Override
         public NodeId nodeId(Object value) {
-            return new NodeId(getNamespaceIndex(), String.format("[%s]%s", getName(), value));
+            NodeId nodeId = new NodeId(getNamespaceIndex(), String.format("[%s]%s", getName(), value));
+
+            namespace.addRoute(nodeId, getName());
+
+            return nodeId;
         }
 
         @Override
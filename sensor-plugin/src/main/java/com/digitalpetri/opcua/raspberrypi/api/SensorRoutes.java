@@ -0,0 +1,66 @@
+package com.digitalpetri.opcua.raspberrypi.api;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import com.google.common.collect.Maps;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * Maps the {@link NodeId}s belonging to each sensor to that sensor's name.
+ * <p>
+ * Only {@link NodeId}s registered by a sensor are stored, so the index is bounded by the nodes sensors create, not by
+ * the {@link NodeId}s clients ask for.
+ */
+class SensorRoutes {
+
+    private final Map<NodeId, String> routes = Maps.newConcurrentMap();
+
+    /**
+     * Route requests for {@code nodeId} to the sensor named {@code sensorName}.
+     */
+    void add(NodeId nodeId, String sensorName) {
+        routes.put(nodeId, sensorName);
+    }
+
+    /**
+     * Remove every route to the sensor named {@code sensorName}.
+     */
+    void remove(String sensorName) {
+        routes.values().removeIf(sensorName::equals);
+    }
+
+    /**
+     * @return the name of the sensor {@code nodeId} routes to, or {@code null} if it doesn't look like it belongs to
+     * any sensor. Unregistered {@link NodeId}s are resolved by parsing their identifier, without being stored.
+     */
+    String sensorName(NodeId nodeId) {
+        String name = routes.get(nodeId);
+
+        return name != null ? name : parseSensorName(nodeId);
+    }
+
+    /**
+     * @return the number of registered routes.
+     */
+    int size() {
+        return routes.size();
+    }
+
+    /**
+     * Fallback for {@link NodeId}s a sensor built itself rather than through {@link SensorContext#nodeId(Object)}, or
+     * that a client made up: parse the sensor name out of the identifier.
+     */
+    private static String parseSensorName(NodeId nodeId) {
+        Object identifier = nodeId.getIdentifier();
+
+        if (!(identifier instanceof String) || !((String) identifier).startsWith("[")) {
+            return null;
+        }
+
+        Matcher matcher = SensorContext.SENSOR_PREFIX_PATTERN.matcher((String) identifier);
+
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.digitalpetri.opcua.raspberrypi.api;
+
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.junit.Test;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Routing cost with hundreds of sensors, for registered and unregistered {@link NodeId}s, against the regex parse of
+ * the sensor name every request used to do.
+ * <p>
+ * Not part of the default test run; run it with {@code mvn test -Dtest=SensorRoutesBenchmark}.
+ */
+public class SensorRoutesBenchmark {
+
+    private static final UShort NAMESPACE_INDEX = ushort(2);
+
+    private static final int SENSORS = 500;
+    private static final int NODES_PER_SENSOR = 10;
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void routing() {
+        SensorRoutes routes = new SensorRoutes();
+        Set<String> names = Sets.newHashSet();
+
+        List<NodeId> registered = Lists.newArrayList();
+        List<NodeId> unregistered = Lists.newArrayList();
+
+        for (int s = 0; s < SENSORS; s++) {
+            String name = "sensor-" + s;
+            names.add(name);
+
+            for (int n = 0; n < NODES_PER_SENSOR; n++) {
+                NodeId nodeId = new NodeId(NAMESPACE_INDEX, String.format("[%s]/Node%d", name, n));
+
+                routes.add(nodeId, name);
+                registered.add(nodeId);
+
+                unregistered.add(new NodeId(NAMESPACE_INDEX, String.format("[%s]/Other%d", name, n)));
+            }
+        }
+
+        // Warm up, then measure.
+        run(routes, registered);
+        run(routes, unregistered);
+        runRegex(names, registered);
+
+        report("registered", run(routes, registered), registered.size());
+        report("unregistered", run(routes, unregistered), unregistered.size());
+        report("regex baseline, registered", runRegex(names, registered), registered.size());
+
+        assertEquals(SENSORS * NODES_PER_SENSOR, routes.size());
+    }
+
+    private static long run(SensorRoutes routes, List<NodeId> nodeIds) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (NodeId nodeId : nodeIds) {
+                if (routes.sensorName(nodeId) == null) {
+                    throw new AssertionError("no route for " + nodeId);
+                }
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The lookup {@link SensorRoutes} replaced: match the identifier against
+     * {@link SensorContext#SENSOR_PREFIX_PATTERN}, then look the sensor name up.
+     */
+    private static long runRegex(Set<String> names, List<NodeId> nodeIds) {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (NodeId nodeId : nodeIds) {
+                Matcher matcher = SensorContext.SENSOR_PREFIX_PATTERN.matcher((String) nodeId.getIdentifier());
+
+                if (!matcher.matches() || !names.contains(matcher.group(1))) {
+                    throw new AssertionError("no route for " + nodeId);
+                }
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String label, long nanos, int count) {
+        System.out.printf("%d sensors, %s NodeIds: %.1f ns/lookup%n",
+            SENSORS, label, (double) nanos / (count * (long) ITERATIONS));
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.digitalpetri.opcua.raspberrypi.api;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
+import org.junit.Test;
+
+import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SensorRoutesTest {
+
+    private static final UShort NAMESPACE_INDEX = ushort(2);
+
+    @Test
+    public void registeredNodeIdsRoute() {
+        SensorRoutes routes = new SensorRoutes();
+
+        routes.add(new NodeId(NAMESPACE_INDEX, "[light]/Lux"), "light");
+
+        assertEquals("light", routes.sensorName(new NodeId(NAMESPACE_INDEX, "[light]/Lux")));
+    }
+
+    @Test
+    public void unregisteredNodeIdsResolveWithoutBeingStored() {
+        SensorRoutes routes = new SensorRoutes();
+
+        routes.add(new NodeId(NAMESPACE_INDEX, "[light]"), "light");
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("light", routes.sensorName(new NodeId(NAMESPACE_INDEX, "[light]made-up-" + i)));
+        }
+
+        assertEquals(1, routes.size());
+    }
+
+    @Test
+    public void foreignNodeIdsDontRoute() {
+        SensorRoutes routes = new SensorRoutes();
+
+        assertNull(routes.sensorName(new NodeId(NAMESPACE_INDEX, "Sensors")));
+        assertNull(routes.sensorName(new NodeId(NAMESPACE_INDEX, 42)));
+    }
+
+    @Test
+    public void removeDropsEveryRouteToTheSensor() {
+        SensorRoutes routes = new SensorRoutes();
+
+        routes.add(new NodeId(NAMESPACE_INDEX, "[light]"), "light");
+        routes.add(new NodeId(NAMESPACE_INDEX, "[light]/Lux"), "light");
+        routes.add(new NodeId(NAMESPACE_INDEX, "[rotary]"), "rotary");
+
+        routes.remove("light");
+
+        assertEquals(1, routes.size());
+    }
+
+}